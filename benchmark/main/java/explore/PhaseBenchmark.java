@@ -0,0 +1,161 @@
+package main.java.explore;
+
+import main.java.explore.graph.GraphCache;
+import main.java.explore.graph.GraphType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of the phases of a sequential tick of a TestCase, for every algorithm: the stop check (agentStops),
+ * the selection (agentStops and selectNextStep) and the arrival (move and evaluateOnArrival).
+ * One operation is one phase for all running agents of a test case, the cost of a single call is the score divided
+ * by the number of agents. Run with -prof gc to get the allocated bytes per operation (gc.alloc.rate.norm).
+ * The explorations have to be brought to the right phase between the operations. So that this fixture does not
+ * skew the short operations, an invocation runs the phase on CASES independent test cases, and the fixture
+ * advances them all at once. The time of the fixture is not measured, but the profiler attributes its allocations
+ * (the restarts of the repeats when the agents are done) to the operations as well.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PhaseBenchmark {
+    private static final int CASES = 32;
+
+    /**
+     * Checks if the agents stop, without changing the state.
+     */
+    @Benchmark
+    @OperationsPerInvocation(CASES)
+    public int agentStops(AfterTick explorations) {
+        int stopping = 0;
+        for (TestCase testCase : explorations.testCases) {
+            stopping += testCase.countStopping();
+        }
+        return stopping;
+    }
+
+    /**
+     * First phase of a tick: stops the agents that are done and selects the next step of the others.
+     */
+    @Benchmark
+    @OperationsPerInvocation(CASES)
+    public void selectNextStep(BeforeSelection explorations) {
+        for (int c = 0; c < CASES; c++) {
+            explorations.select(c);
+        }
+    }
+
+    /**
+     * Second phase of a tick: moves the agents and evaluates their arrival.
+     */
+    @Benchmark
+    @OperationsPerInvocation(CASES)
+    public void evaluateOnArrival(BeforeArrival explorations) {
+        for (int c = 0; c < CASES; c++) {
+            explorations.arrive(c);
+        }
+    }
+
+    /**
+     * Explorations of CASES test cases on a graph generated once per trial.
+     */
+    @State(Scope.Thread)
+    public static class Explorations {
+        @Param({TestManager.ROTORROUTERCODE, TestManager.MULTIAGENTDFSCODE,
+                TestManager.MULTIAGENTDDFSCODE, TestManager.MULTIAGENTEDDFSCODE})
+        public String algorithmCode;
+
+        @Param({"RANDOM", "LOBSTER"})
+        public GraphType graphType;
+
+        @Param({"300"})
+        public int graphSize;
+
+        @Param({"10"})
+        public int avgDegree;
+
+        @Param({"10", "100"})
+        public int agentNum;
+
+        final TestCase[] testCases = new TestCase[CASES];
+        //the selection phase found every agent stopped
+        final boolean[] done = new boolean[CASES];
+        //the next steps are selected, the agents have not moved yet
+        final boolean[] selected = new boolean[CASES];
+
+        @Setup(Level.Trial)
+        public void createTestCases() {
+            //every test case runs on the graph of the first repeat, generated once
+            GraphCache graphCache = new GraphCache(Long.MAX_VALUE, 0, null);
+            for (int c = 0; c < CASES; c++) {
+                testCases[c] = new TestCase(graphType, graphSize, avgDegree, () -> TestManager.selectAlgorithm(algorithmCode),
+                        agentNum, 1, ExecutionMode.SEQUENTIAL, RunBudget.UNLIMITED, graphCache);
+                testCases[c].startRepeat(0);
+            }
+        }
+
+        void restart(int c) {
+            testCases[c].endRepeat(true);
+            testCases[c].startRepeat(0);
+            done[c] = false;
+            selected[c] = false;
+        }
+
+        void select(int c) {
+            done[c] = testCases[c].selectionPhase();
+            selected[c] = true;
+        }
+
+        void arrive(int c) {
+            testCases[c].arrivalPhase();
+            selected[c] = false;
+        }
+    }
+
+    public static class AfterTick extends Explorations {
+        @Setup(Level.Invocation)
+        public void prepare() {
+            for (int c = 0; c < CASES; c++) {
+                if (!selected[c]) {
+                    select(c);
+                }
+                arrive(c);
+                if (done[c]) {
+                    restart(c);
+                }
+            }
+        }
+    }
+
+    public static class BeforeSelection extends Explorations {
+        @Setup(Level.Invocation)
+        public void prepare() {
+            for (int c = 0; c < CASES; c++) {
+                if (selected[c]) {
+                    arrive(c);
+                }
+                if (done[c]) {
+                    restart(c);
+                }
+            }
+        }
+    }
+
+    public static class BeforeArrival extends Explorations {
+        @Setup(Level.Invocation)
+        public void prepare() {
+            for (int c = 0; c < CASES; c++) {
+                //make sure there is somebody to move
+                while (!selected[c] || done[c]) {
+                    if (done[c]) {
+                        restart(c);
+                    }
+                    select(c);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package main.java.explore;
+
+import main.java.explore.graph.GraphCache;
+import main.java.explore.graph.GraphType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of a tick of a TestCase, for every algorithm, with the metrics on and off.
+ * One operation is a tick of all running agents, run by the test case as in a campaign. Run with -prof gc
+ * to get the allocated bytes per operation (gc.alloc.rate.norm). The phases of the tick are in PhaseBenchmark.
+ * The exploration advances from tick to tick, and starts a new repeat on the same graph when the agents are done.
+ * The restarts are part of the operations, as they are part of a campaign.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TickBenchmark {
+    @Param({TestManager.ROTORROUTERCODE, TestManager.MULTIAGENTDFSCODE,
+            TestManager.MULTIAGENTDDFSCODE, TestManager.MULTIAGENTEDDFSCODE})
+    public String algorithmCode;
+
+    @Param({"RANDOM", "LOBSTER"})
+    public GraphType graphType;
+
+    @Param({"300"})
+    public int graphSize;
+
+    @Param({"10"})
+    public int avgDegree;
+
+    @Param({"10", "100"})
+    public int agentNum;
+
+    @Param({"SEQUENTIAL"})
+    public ExecutionMode executionMode;
+
+    @Param({"false", "true"})
+    public boolean metrics;
+
+    private TestCase testCase;
+
+    @Setup(Level.Trial)
+    public void createTestCase() {
+        //the graph of the first repeat is generated once and cached
+        GraphCache graphCache = new GraphCache(Long.MAX_VALUE, 0, null);
+        testCase = new TestCase(graphType, graphSize, avgDegree, () -> TestManager.selectAlgorithm(algorithmCode),
+                agentNum, 1, executionMode, RunBudget.UNLIMITED, graphCache);
+        testCase.setMetricsEnabled(metrics);
+        testCase.startRepeat(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void endRepeat() {
+        testCase.endRepeat(false);
+    }
+
+    @Benchmark
+    public void tick() {
+        if (testCase.isStopped()) {
+            testCase.endRepeat(true);
+            testCase.startRepeat(0);
+        }
+        testCase.tick();
+    }
+}
@@ -1,47 +1,58 @@
 package main.java.explore;
 
 import lombok.Data;
-import org.graphstream.graph.Edge;
-import org.graphstream.graph.Node;
+import main.java.explore.graph.CompactGraph;
+
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Represents an agent that is exploring a graph following an algorithm.
  */
 
 @Data
-public class Agent implements Runnable {
-    protected static int idc;
+public class Agent {
+    private static final AtomicInteger idc = new AtomicInteger();
     private final int id;
+    //position of the agent in the agent list of its run
+    private final int index;
     private Object memory;
-    private Node currentNode;
-    private volatile boolean running = true, paused = false;
+    private int currentNode;
+    private volatile boolean running = true;
     private int moves;
+    //edge of the last move, -1 before the first one
+    private int lastEdge = -1;
+    //position of the last edge amongst the edges of the node the agent left, -1 before the first move
+    private int lastPort = -1;
 
-    public Agent (Node node) {
-        this.id = ++idc;
+    public Agent (int index, int node) {
+        this.id = idc.incrementAndGet();
+        this.index = index;
         this.currentNode = node;
     }
 
-    @Override
-    public void run() {
-        //TODO: implement parallel run
-        while (running) {
-        }
+    /**
+     * Puts the agent back on a start node for a new run, as a new agent would be. The memory is kept.
+     * @param node The start node.
+     */
+    public void reset(int node) {
+        currentNode = node;
+        running = true;
+        moves = 0;
+        lastEdge = -1;
+        lastPort = -1;
     }
 
-    public void move(Edge moveOn) {
+    public void move(CompactGraph graph, int moveOn) {
         moves++;
-        currentNode = moveOn.getOpposite(currentNode);
+        lastEdge = moveOn;
+        lastPort = graph.indexOfEdge(currentNode, moveOn);
+        currentNode = graph.getOpposite(moveOn, currentNode);
     }
 
     public void stop() {
         running = false;
     }
 
-    public void pause(boolean p) {
-        paused = p;
-    }
-
     @Override
     public String toString() {
         return "Agent" + id;
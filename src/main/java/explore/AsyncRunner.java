@@ -0,0 +1,159 @@
+package main.java.explore;
+
+import main.java.explore.algorithm.Algorithm;
+import main.java.explore.graph.CompactGraph;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs an exploration in the asynchronous model: every agent moves at its own pace, until the algorithm stops it.
+ * Agents do not get threads of their own: an agent is a task making up to SLICE_STEPS moves, then queueing itself
+ * again, on a pool with a thread per core shared by every async run. So thousands of agents interleave on a few
+ * threads, whatever the runtime (virtual threads are not available at the source level of the build).
+ * The storage of a node is only accessed while holding the node's lock (striped), edge states are shared.
+ */
+public class AsyncRunner {
+    private static final int MAX_LOCK_STRIPES = 1024;
+    //moves of an agent before it yields its thread to the other agents
+    private static final int SLICE_STEPS = 64;
+    private static final ExecutorService pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+        Thread thread = new Thread(runnable, "AsyncAgents");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Logger logger = Logger.getLogger(AsyncRunner.class.getName());
+
+    private final Algorithm<?, ?> algorithm;
+    private final CompactGraph graph;
+    private final ArrayList<Agent> agents;
+    private final ReentrantLock[] locks;
+    private final RunBudget budget;
+    private volatile boolean budgetExceeded, cancelled;
+    private CountDownLatch running;
+
+    public AsyncRunner(Algorithm<?, ?> algorithm, CompactGraph graph, ArrayList<Agent> agents, RunBudget budget) {
+        this.algorithm = algorithm;
+        this.budget = budget;
+        this.graph = graph;
+        this.agents = agents;
+        locks = new ReentrantLock[Math.max(1, Math.min(graph.getNodeCount(), MAX_LOCK_STRIPES))];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Starts every agent and waits until all of them stop.
+     * Agents are stopped early if the deadline passes or one of them reaches the step limit of the budget.
+     * Either way, no agent moves any more when this returns.
+     * @param deadline Deadline of the run.
+     * @return False if the run was stopped early.
+     * @throws InterruptedException If interrupted while waiting, the agents are stopped as well.
+     */
+    public boolean run(long deadline) throws InterruptedException {
+        budgetExceeded = false;
+        cancelled = false;
+        running = new CountDownLatch(agents.size());
+        for (Agent agent : agents) {
+            pool.execute(() -> runSlice(agent));
+        }
+        try {
+            if (!running.await(RunBudget.remainingNanos(deadline), TimeUnit.NANOSECONDS)) {
+                budgetExceeded = true;
+                cancelled = true;
+                awaitStopped();
+            }
+        } catch (InterruptedException e) {
+            cancelled = true;
+            awaitStopped();
+            throw e;
+        }
+        return !budgetExceeded;
+    }
+
+    /**
+     * Moves an agent until it stops or its slice is used up, then queues the rest of its run behind the other agents.
+     */
+    private void runSlice(Agent agent) {
+        try {
+            for (int i = 0; i < SLICE_STEPS; i++) {
+                if (cancelled || !step(agent)) {
+                    agent.stop();
+                    running.countDown();
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.log(Level.SEVERE, "Agent " + agent + " failed: " + e.getMessage());
+            cancelled = true;
+            budgetExceeded = true;
+            agent.stop();
+            running.countDown();
+            return;
+        }
+        pool.execute(() -> runSlice(agent));
+    }
+
+    /**
+     * Waits for the agents of a cancelled run, which stop within a slice. Keeps the interrupt flag.
+     */
+    private void awaitStopped() {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                running.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Makes one move with an agent: stop or select the next edge on the current node, then move and evaluate.
+     * @param agent The agent.
+     * @return False if the agent stops.
+     */
+    boolean step(Agent agent) {
+        if (budget.stepsExceeded(agent.getMoves())) {
+            budgetExceeded = true;
+            return false;
+        }
+        int node = agent.getCurrentNode();
+        int moveOn;
+        ReentrantLock lock = lockOf(node);
+        lock.lock();
+        try {
+            if (algorithm.agentStops(agents, agent)) {
+                return false;
+            }
+            moveOn = algorithm.selectNextStep(agent);
+        } finally {
+            lock.unlock();
+        }
+
+        lock = lockOf(graph.getOpposite(moveOn, node));
+        lock.lock();
+        try {
+            agent.move(graph, moveOn);
+            algorithm.evaluateOnArrival(agent, moveOn);
+        } finally {
+            lock.unlock();
+        }
+        return true;
+    }
+
+    private ReentrantLock lockOf(int node) {
+        return locks[node % locks.length];
+    }
+}
@@ -0,0 +1,130 @@
+package main.java.explore;
+
+import main.java.explore.graph.CompactGraph;
+import main.java.explore.graph.GraphFile;
+import main.java.explore.graph.GraphManager;
+import main.java.explore.graph.GraphType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Generates a corpus of graph files, which later runs with the same graph seed load instead of generating the graphs.
+ * Input lines: graph type, size range, degree range and number of graphs, e.g. "random 1000-5000:1000 4-8:2 20".
+ * The n-th graph of a parameter set is generated from the graph seed plus n, like the n-th repeat of a test case.
+ */
+public class CorpusBuilder {
+    private static final char COMMENTLINE = '#';
+
+    private final Properties properties;
+    private final ArrayList<Job> jobs = new ArrayList<>();
+    private static final Logger logger = Logger.getLogger(CorpusBuilder.class.getName());
+
+    public CorpusBuilder(String inputFile, Properties properties) {
+        this.properties = properties;
+        Path corpus = Paths.get(properties.getProperty("testcase.graph_corpus", Main.DEFAULT_GRAPH_CORPUS));
+        int seed = Main.getIntProperty(properties, "testcase.graph_seed", new Random().nextInt());
+        logger.log(Level.INFO, "Graph corpus: " + corpus.toAbsolutePath() + ", graph seed: " + seed);
+
+        try {
+            readCorpusFile(inputFile, seed);
+            Files.createDirectories(corpus);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Corpus input file could not be read or corpus directory could not be created.");
+            return;
+        }
+
+        buildCorpus(corpus);
+    }
+
+    private void buildCorpus(Path corpus) {
+        AtomicInteger written = new AtomicInteger();
+        long startTime = System.nanoTime();
+        try {
+            //graphs are generated independently, one per core
+            jobs.parallelStream().forEach(job -> {
+                Path file = corpus.resolve(GraphFile.fileName(job.graphType, job.graphSize, job.avgDegree, job.seed));
+                //existing files are kept if they load, files of an older version or damaged ones are replaced
+                if (Files.exists(file)) {
+                    try {
+                        GraphFile.read(file);
+                        return;
+                    } catch (IOException e) {
+                        logger.log(Level.WARNING, "Graph file replaced: " + e.getMessage());
+                    }
+                }
+                CompactGraph graph = GraphManager.regenerateGraph(job.graphType, job.graphSize, job.avgDegree, false, job.seed);
+                try {
+                    GraphFile.write(graph, file, job.graphType, job.graphSize, job.avgDegree, job.seed);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                written.incrementAndGet();
+            });
+        } catch (UncheckedIOException e) {
+            logger.log(Level.SEVERE, "Graph file could not be written: " + e.getCause().getMessage());
+        }
+        logger.log(Level.INFO, written.get() + " of " + jobs.size() + " graph files written in "
+                + (System.nanoTime() - startTime) / 1_000_000 + "ms, the others existed.");
+    }
+
+    private void readCorpusFile(String fileName, int seed) throws IOException {
+        int minDegree = Main.getIntProperty(properties, "testcase.min_degree", Main.TESTCASE_MINDEGREE);
+        int maxDegree = Main.getIntProperty(properties, "testcase.max_degree", Main.TESTCASE_MAXDEGREE);
+        try (Stream<String> stream = Files.lines(Paths.get(fileName))) {
+            stream.forEach((line) -> {
+                if (line.isBlank() || line.charAt(0) == COMMENTLINE) {
+                    return;
+                }
+                try {
+                    parseCorpusLine(line, minDegree, maxDegree, seed);
+                    logger.log(Level.INFO, "Corpus graphs added: {0}", new Object[]{line});
+                }
+                catch (Exception ex) {
+                    logger.log(Level.WARNING, "Corpus line parse error: {0}: {1}", new Object[]{line, ex.getMessage()});
+                }
+            });
+        }
+    }
+
+    private void parseCorpusLine(String line, int minDegree, int maxDegree, int seed) {
+        Scanner sc = new Scanner(line);
+        GraphType graphType = GraphManager.getGraphType(sc.next());
+        int[] sizeRange = TestManager.parseRange(sc.next());
+        int[] degreeRange = TestManager.parseRange(sc.next(), minDegree, Integer.min(maxDegree, sizeRange[1]-1));
+        int count = sc.nextInt();
+        sc.close();
+
+        for (int graphSize = sizeRange[0]; graphSize <= sizeRange[1]; graphSize += sizeRange[2]) {
+            for (int avgDegree = degreeRange[0]; avgDegree <= degreeRange[1]; avgDegree += degreeRange[2]) {
+                for (int i = 0; i < count; i++) {
+                    jobs.add(new Job(graphType, graphSize, avgDegree, (long) seed + i));
+                }
+            }
+        }
+    }
+
+    private static class Job {
+        private final GraphType graphType;
+        private final int graphSize, avgDegree;
+        private final long seed;
+
+        private Job(GraphType graphType, int graphSize, int avgDegree, long seed) {
+            this.graphType = graphType;
+            this.graphSize = graphSize;
+            this.avgDegree = avgDegree;
+            this.seed = seed;
+        }
+    }
+}
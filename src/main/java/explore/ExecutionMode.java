@@ -0,0 +1,17 @@
+package main.java.explore;
+
+/**
+ * Ways of running the ticks of a test case.
+ */
+public enum ExecutionMode {
+    //agents select and move one after the other
+    SEQUENTIAL,
+    //agents select and move on a ForkJoin pool, with the same results as SEQUENTIAL
+    PARALLEL,
+    //every agent moves at its own pace, as tasks interleaved on a thread per core, there are no ticks
+    ASYNC;
+
+    public static ExecutionMode fromString(String name) throws IllegalArgumentException {
+        return valueOf(name.trim().toUpperCase());
+    }
+}
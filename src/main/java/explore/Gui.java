@@ -5,13 +5,20 @@ import org.graphstream.ui.view.Viewer;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.io.IOException;
 import java.util.Objects;
 
 public class Gui extends JFrame {
+    //timer period of the rendering, in milliseconds
+    private static final int FRAME_MILLIS = 40;
     private final TestCase testCase;
+    private final RenderQueue renderQueue;
+    private final Timer frameTimer = new Timer(FRAME_MILLIS, e -> renderFrame());
+    private JLabel stepCountLabel;
     private final JSplitPane splitPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT);
     public final static String STEP_COUNT_LABEL = "Step count: ";
     public final static String STEP_TOTAL_LABEL = "Steps total: ";
@@ -20,12 +27,13 @@ public class Gui extends JFrame {
     private JComboBox<String> cmbAlgorithm;
     private JComboBox<Integer> cmbNumberOfAgents;
 
-    public Gui (TestCase testCase) {
+    public Gui (TestCase testCase, int tickMillis) {
         this.setTitle("Multi Agent Graph Exploration");
         this.setDefaultCloseOperation(EXIT_ON_CLOSE);
         this.setSize(900, 800);
         this.setLocationRelativeTo(null);
         this.testCase = testCase;
+        this.renderQueue = testCase.enableRendering(tickMillis);
 
         setControlPanel();
         setNewGraphViewPanel();
@@ -37,6 +45,7 @@ public class Gui extends JFrame {
         this.testCase.init((GraphType) cmbGraphType.getSelectedItem(),
                 TestManager.selectAlgorithm((String) Objects.requireNonNull(cmbAlgorithm.getSelectedItem())),
                 (int)cmbNumberOfAgents.getSelectedItem(), true);
+        frameTimer.start();
 
         //setting focus to start/stop button
         this.addWindowFocusListener(new WindowAdapter() {
@@ -48,11 +57,23 @@ public class Gui extends JFrame {
         this.addWindowListener(
                 new WindowAdapter() {
                     public void windowClosing(WindowEvent e) {
+                        frameTimer.stop();
                         testCase.stop();
                     }
                 });
     }
     
+    /**
+     * Applies the changes the simulation published since the previous frame. The graph is only changed
+     * on the event thread, so the viewer can render it in the same thread.
+     */
+    private void renderFrame() {
+        RenderDelta delta = renderQueue.drain();
+        if (delta != null) {
+            delta.apply(testCase.getGraph(), stepCountLabel);
+        }
+    }
+
     private void setNewGraphViewPanel () {
         Viewer viewer = new Viewer(testCase.getGraph(), Viewer.ThreadingModel.GRAPH_IN_GUI_THREAD);
         viewer.enableAutoLayout();
@@ -92,6 +113,9 @@ public class Gui extends JFrame {
         //start-stop
         btnStartStop = new JButton("Start / stop");
         setComponentSize(btnStartStop, comboSize, false);
+        //replay of a recorded trace
+        JButton btnReplay = new JButton("Replay trace");
+        setComponentSize(btnReplay, comboSize, false);
 
         //ActionListeners
         cmbGraphType.addActionListener(e -> {
@@ -105,10 +129,10 @@ public class Gui extends JFrame {
                     (int)cmbNumberOfAgents.getSelectedItem(), false));
         btnNextStep.addActionListener(e -> testCase.tickOne());
         btnStartStop.addActionListener(e -> testCase.start());
+        btnReplay.addActionListener(e -> openTrace());
 
-        JLabel stepCountLabel = new JLabel(STEP_COUNT_LABEL);
+        stepCountLabel = new JLabel(STEP_COUNT_LABEL);
         setComponentSize(stepCountLabel, comboSize, false);
-        testCase.setStepCountLabel(stepCountLabel);
 
         //controlPanel2.add(Box.createRigidArea(new Dimension(5, 0)));
         // controlPanel1.setBorder(new EmptyBorder(10, 0, 0, 0));
@@ -126,6 +150,7 @@ public class Gui extends JFrame {
         controlPanelA3.add(lblNumberOfAgents);
         controlPanelA3.add(cmbNumberOfAgents);
         controlPanelA4.add(btnRestart);
+        controlPanelA4.add(btnReplay);
         controlPanelA.add(controlPanelA1);
         controlPanelA.add(controlPanelA2);
         controlPanelA.add(controlPanelA3);
@@ -150,6 +175,20 @@ public class Gui extends JFrame {
         splitPane.setLeftComponent(controlPanel);
     }
 
+    private void openTrace() {
+        JFileChooser chooser = new JFileChooser(".");
+        chooser.setFileFilter(new FileNameExtensionFilter("Step traces", TraceRecorder.EXTENSION.substring(1)));
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        try {
+            Trace trace = new Trace(chooser.getSelectedFile().toPath());
+            new TraceViewer(trace, chooser.getSelectedFile().getName()).setVisible(true);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, e.getMessage(), "Replay trace", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
     private void setComponentSize(JComponent component, Dimension dimension, boolean bordersToo){
         component.setMinimumSize(dimension);
         component.setPreferredSize(dimension);
@@ -14,8 +14,14 @@ import java.util.logging.*;
 public class Main {
     private static final String CONFIGFILE = "/config.properties";
     private static final String DEFAULT_OUTPUT_FILE = "output.txt";
-    public final static int GUI_GRAPHSIZE = 20, GUI_GRAPH_DEGREE = 4, GUI_AGENTNUM = 2;
+    private static final String CORPUS_COMMAND = "-corpus";
+    public static final String DEFAULT_GRAPH_CORPUS = "corpus";
+    public final static int GUI_GRAPHSIZE = 20, GUI_GRAPH_DEGREE = 4, GUI_AGENTNUM = 2, GUI_TICK_MILLIS = 1000;
     public final static int TESTCASE_TIMEOUT = 1200, TESTCASE_MINDEGREE = 3, TESTCASE_MAXDEGREE = Integer.MAX_VALUE;
+    public final static int TESTCASE_CASE_TIMEOUT = 0, TESTCASE_REPEAT_TIMEOUT = 0, TESTCASE_REPEAT_MAXSTEPS = 0;
+    public final static int TESTCASE_GRAPH_CACHE_MB = 256;
+    public final static int TESTCASE_PROGRESS_INTERVAL = 10;
+    public final static ExecutionMode TESTCASE_EXECUTION_MODE = ExecutionMode.SEQUENTIAL;
     public final static GraphType GUI_GRAPHTYPE = GraphType.TUTORIAL;
     public final static String GUI_ALGORITHM = TestManager.MULTIAGENTDFSCODE;
     private static final Properties properties = new Properties();
@@ -48,10 +54,13 @@ public class Main {
             int graphAvgDegree = getIntProperty(properties, "gui.graph_avgdegree", GUI_GRAPH_DEGREE);
             Graph graph = GraphManager.getGraph(GUI_GRAPHTYPE, graphSize, graphAvgDegree);
             testCase = new TestCase(graph);
-            Gui frame = new Gui(testCase);
+            Gui frame = new Gui(testCase, getIntProperty(properties, "gui.tick_millis", GUI_TICK_MILLIS));
             frame.setVisible(true);
             logger.log(Level.INFO, "Graphical interface started.");
         }
+        else if (args[0].equals(CORPUS_COMMAND) && args.length > 1) {
+            new CorpusBuilder(args[1], properties);
+        }
         else {
             TestManager testManager = new TestManager(args[0], args.length > 1 ? args[1] : DEFAULT_OUTPUT_FILE, properties);
         }
@@ -117,6 +126,19 @@ public class Main {
         return defaultValue;
     }
 
+    public static ExecutionMode getExecutionModeProperty(Properties properties, String key, ExecutionMode defaultValue) {
+        if (properties.containsKey(key)) {
+            try {
+                return ExecutionMode.fromString(properties.getProperty(key));
+            }
+            catch (IllegalArgumentException e) {
+                logger.log(Level.INFO, "Cannot parse execution mode from property value of " + key);
+            }
+        }
+        logger.log(Level.INFO, "Using default property value of " + key);
+        return defaultValue;
+    }
+
     private static void endLogging() {
         for (Handler handler : logger.getHandlers()) {
             handler.close();
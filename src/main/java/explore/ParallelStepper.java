@@ -0,0 +1,181 @@
+package main.java.explore;
+
+import main.java.explore.algorithm.Algorithm;
+import main.java.explore.graph.CompactGraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs the two phases of a tick (stop or select next step, then move and evaluate) on a ForkJoin pool.
+ * In each phase the agents are grouped by the nodes and edges they touch: the selection touches the current node,
+ * the arrival touches the target node and the edge moved on. Different groups run in parallel, the agents of a group
+ * run in agent order, and the phase ends when every group is joined. Since the groups share no state, the results
+ * are the same as the ones of the sequential tick.
+ * Only algorithms supporting it (see Algorithm.supportsParallelTick) can be stepped this way.
+ */
+public class ParallelStepper {
+    private static final int NONE = -1;
+    //number of groups a task steps without further splitting
+    private static final int GROUPS_PER_TASK = 4;
+
+    private final ForkJoinPool pool;
+    private final Algorithm<?, ?> algorithm;
+    private final CompactGraph graph;
+    private final ArrayList<Agent> agents;
+
+    //by agent index
+    private final int[] nextSteps, parent, keyNode, keyEdge, groupHead, groupTail, nextInGroup;
+    //by node and edge index: first agent touching it in the current phase
+    private final int[] nodeOwner, edgeOwner;
+    private final int[] groups;
+    private int groupCount;
+
+    public ParallelStepper(ForkJoinPool pool, Algorithm<?, ?> algorithm, CompactGraph graph, ArrayList<Agent> agents) {
+        if (!algorithm.supportsParallelTick()) {
+            throw new IllegalArgumentException(algorithm.getName() + " can not be stepped in parallel.");
+        }
+        this.pool = pool;
+        this.algorithm = algorithm;
+        this.graph = graph;
+        this.agents = agents;
+        int agentNum = agents.size();
+        nextSteps = new int[agentNum];
+        parent = new int[agentNum];
+        keyNode = new int[agentNum];
+        keyEdge = new int[agentNum];
+        groupHead = new int[agentNum];
+        groupTail = new int[agentNum];
+        nextInGroup = new int[agentNum];
+        groups = new int[agentNum];
+        nodeOwner = new int[graph.getNodeCount()];
+        edgeOwner = new int[graph.getEdgeCount()];
+        Arrays.fill(nodeOwner, NONE);
+        Arrays.fill(edgeOwner, NONE);
+    }
+
+    /**
+     * Runs one tick.
+     * @return True if every agent has stopped, so nobody moved.
+     */
+    public boolean tick() {
+        group(false);
+        pool.invoke(new PhaseTask(0, groupCount, false));
+
+        boolean allDone = true;
+        for (Agent agent : agents) {
+            allDone = allDone && !agent.isRunning();
+        }
+
+        group(true);
+        pool.invoke(new PhaseTask(0, groupCount, true));
+        return allDone;
+    }
+
+    private void step(int i, boolean arrival) {
+        Agent agent = agents.get(i);
+        if (arrival) {
+            agent.move(graph, nextSteps[i]);
+            algorithm.evaluateOnArrival(agent, nextSteps[i]);
+        }
+        else if (algorithm.agentStops(agents, agent)) {
+            agent.stop();
+        }
+        else {
+            nextSteps[i] = algorithm.selectNextStep(agent);
+        }
+    }
+
+    /**
+     * Groups the running agents by the nodes and edges they touch in a phase (union-find on the agent indexes).
+     * @param arrival True for the move and evaluate phase.
+     */
+    private void group(boolean arrival) {
+        int agentNum = agents.size();
+        for (int i = 0; i < agentNum; i++) {
+            parent[i] = i;
+            groupHead[i] = NONE;
+            Agent agent = agents.get(i);
+            if (!agent.isRunning()) {
+                continue;
+            }
+            keyNode[i] = agent.getCurrentNode();
+            keyEdge[i] = NONE;
+            if (arrival) {
+                keyEdge[i] = nextSteps[i];
+                keyNode[i] = graph.getOpposite(nextSteps[i], keyNode[i]);
+                claim(edgeOwner, keyEdge[i], i);
+            }
+            claim(nodeOwner, keyNode[i], i);
+        }
+
+        //collect the groups, agents of a group are linked in agent order
+        groupCount = 0;
+        for (int i = 0; i < agentNum; i++) {
+            if (!agents.get(i).isRunning()) {
+                continue;
+            }
+            int root = find(i);
+            if (groupHead[root] == NONE) {
+                groupHead[root] = i;
+                groups[groupCount++] = root;
+            } else {
+                nextInGroup[groupTail[root]] = i;
+            }
+            groupTail[root] = i;
+            nextInGroup[i] = NONE;
+
+            //release the keys for the next phase
+            nodeOwner[keyNode[i]] = NONE;
+            if (keyEdge[i] != NONE) {
+                edgeOwner[keyEdge[i]] = NONE;
+            }
+        }
+    }
+
+    private void claim(int[] owner, int key, int agent) {
+        if (owner[key] == NONE) {
+            owner[key] = agent;
+        } else {
+            int a = find(owner[key]), b = find(agent);
+            if (a != b) {
+                parent[Math.max(a, b)] = Math.min(a, b);
+            }
+        }
+    }
+
+    private int find(int agent) {
+        while (parent[agent] != agent) {
+            parent[agent] = parent[parent[agent]];
+            agent = parent[agent];
+        }
+        return agent;
+    }
+
+    private class PhaseTask extends RecursiveAction {
+        private final int from, to;
+        private final boolean arrival;
+
+        private PhaseTask(int from, int to, boolean arrival) {
+            this.from = from;
+            this.to = to;
+            this.arrival = arrival;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= GROUPS_PER_TASK) {
+                for (int g = from; g < to; g++) {
+                    for (int i = groupHead[groups[g]]; i != NONE; i = nextInGroup[i]) {
+                        step(i, arrival);
+                    }
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new PhaseTask(from, middle, arrival), new PhaseTask(middle, to, arrival));
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package main.java.explore;
+
+import main.java.explore.graph.EdgeState;
+import main.java.explore.graph.EdgeStore;
+import org.graphstream.graph.Edge;
+import org.graphstream.graph.Graph;
+
+import javax.swing.*;
+import java.util.HashMap;
+import java.util.Map;
+
+import static main.java.explore.algorithm.Algorithm.LABELID;
+
+/**
+ * Changes of a rendered run: node labels, edge states and the step count. Built by the simulation (see RenderQueue),
+ * applied to the GraphStream graph by the Gui's event thread. A delta holds the latest value of every node and edge
+ * it touches, so merging a later delta into an earlier one keeps the latest state.
+ */
+class RenderDelta {
+    private final HashMap<Integer, String> nodeLabels = new HashMap<>();
+    private final HashMap<Integer, EdgeChange> edges = new HashMap<>();
+    private int stepCount;
+    private boolean stopped;
+
+    RenderDelta(int stepCount, boolean stopped) {
+        this.stepCount = stepCount;
+        this.stopped = stopped;
+    }
+
+    void setNodeLabel(int node, String label) {
+        nodeLabels.put(node, label);
+    }
+
+    void setEdge(int edge, EdgeState state, String style, int label) {
+        edges.put(edge, new EdgeChange(state, style, label));
+    }
+
+    /**
+     * Adds the changes of a later delta, replacing the values of the nodes and edges both touch.
+     * @param later The later delta.
+     */
+    void merge(RenderDelta later) {
+        nodeLabels.putAll(later.nodeLabels);
+        edges.putAll(later.edges);
+        stepCount = later.stepCount;
+        stopped = later.stopped;
+    }
+
+    /**
+     * Applies the changes. Must run on the thread rendering the graph.
+     * @param graph The rendered graph.
+     * @param stepCountLabel Label of the step count.
+     */
+    void apply(Graph graph, JLabel stepCountLabel) {
+        for (Map.Entry<Integer, String> entry : nodeLabels.entrySet()) {
+            graph.getNode(entry.getKey()).setAttribute(LABELID, entry.getValue());
+        }
+        for (Map.Entry<Integer, EdgeChange> entry : edges.entrySet()) {
+            Edge edge = graph.getEdge(entry.getKey());
+            EdgeChange change = entry.getValue();
+            change.state.setEdge(edge);
+            edge.setAttribute("ui.style", change.style);
+            if (change.label != EdgeStore.NO_LABEL) {
+                edge.setAttribute(LABELID, change.label);
+            } else {
+                edge.removeAttribute(LABELID);
+            }
+        }
+        stepCountLabel.setText((stopped ? Gui.STEP_TOTAL_LABEL : Gui.STEP_COUNT_LABEL) + stepCount);
+    }
+
+    private static final class EdgeChange {
+        private final EdgeState state;
+        private final String style;
+        private final int label;
+
+        private EdgeChange(EdgeState state, String style, int label) {
+            this.state = state;
+            this.style = style;
+            this.label = label;
+        }
+    }
+}
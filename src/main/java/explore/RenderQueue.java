@@ -0,0 +1,131 @@
+package main.java.explore;
+
+import main.java.explore.algorithm.Algorithm;
+import main.java.explore.graph.CompactGraph;
+import main.java.explore.graph.EdgeState;
+import main.java.explore.graph.EdgeStore;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Hands the changes of a Gui run from the simulation to the Gui, so the simulation never touches the rendered graph.
+ * After every tick the simulation offers a delta of what changed around the agents into a bounded queue, without
+ * waiting for the Gui: if the queue is full, the delta is merged into an overflow delta that is offered again later.
+ * The Gui drains and merges everything pending once per frame, and renders the latest state however fast
+ * the simulation ticks.
+ */
+public class RenderQueue {
+    private static final int CAPACITY = 16;
+
+    private final ArrayBlockingQueue<RenderDelta> queue = new ArrayBlockingQueue<>(CAPACITY);
+    //newer than everything queued, guarded by this
+    private RenderDelta overflow;
+    //edge states and labels as published, only used by the simulation
+    private byte[] shownStates = new byte[0];
+    private int[] shownLabels = new int[0];
+
+    /**
+     * Drops the pending changes of the previous run and publishes the labels of every node. The rendered edges
+     * must have been reset to UNVISITED (see GraphManager.resetGraph).
+     * @param algorithm The algorithm, initialized.
+     * @param agents The agents.
+     * @param stepCount Steps done.
+     * @param stopped True if the run is finished.
+     */
+    void reset(Algorithm<?, ?> algorithm, ArrayList<Agent> agents, int stepCount, boolean stopped) {
+        synchronized (this) {
+            queue.clear();
+            overflow = null;
+        }
+        int edgeCount = algorithm.getGraph().getEdgeCount();
+        shownStates = new byte[edgeCount];
+        shownLabels = new int[edgeCount];
+        RenderDelta delta = new RenderDelta(stepCount, stopped);
+        for (int n = 0; n < algorithm.getGraph().getNodeCount(); n++) {
+            delta.setNodeLabel(n, nodeLabel(n, algorithm, agents));
+        }
+        offer(delta);
+    }
+
+    /**
+     * Publishes the changes of a tick. Only the nodes and edges around the agents are checked: an algorithm changes
+     * the storage of the agents' nodes and the states of their incident edges (see Algorithm.supportsParallelTick),
+     * and an agent leaves the label of a neighbour.
+     * @param algorithm The algorithm.
+     * @param agents The agents.
+     * @param stepCount Steps done.
+     * @param stopped True if the run is finished.
+     */
+    void publish(Algorithm<?, ?> algorithm, ArrayList<Agent> agents, int stepCount, boolean stopped) {
+        CompactGraph graph = algorithm.getGraph();
+        EdgeStore edges = algorithm.getEdgeStore();
+        RenderDelta delta = new RenderDelta(stepCount, stopped);
+        HashSet<Integer> nodes = new HashSet<>();
+        for (Agent agent : agents) {
+            int node = agent.getCurrentNode();
+            nodes.add(node);
+            for (int i = 0; i < graph.getDegree(node); i++) {
+                nodes.add(graph.getNeighbour(node, i));
+                int edge = graph.getEdge(node, i);
+                EdgeState state = edges.getState(edge);
+                int label = edges.getLabel(edge);
+                if (state.code != shownStates[edge] || label != shownLabels[edge]) {
+                    shownStates[edge] = state.code;
+                    shownLabels[edge] = label;
+                    delta.setEdge(edge, state, algorithm.getEdgeStyle(edge), label);
+                }
+            }
+        }
+        for (int node : nodes) {
+            delta.setNodeLabel(node, nodeLabel(node, algorithm, agents));
+        }
+        offer(delta);
+    }
+
+    /**
+     * Label of a node: its id, the agents on it and its storage.
+     */
+    private static String nodeLabel(int node, Algorithm<?, ?> algorithm, ArrayList<Agent> agents) {
+        LinkedHashSet<String> labels = new LinkedHashSet<>();
+        labels.add(algorithm.getGraph().getNodeId(node));
+        for (Agent agent : agents) {
+            if (agent.getCurrentNode() == node) {
+                labels.add(agent.toString());
+            }
+        }
+        labels.add(algorithm.getNodeLabel(node));
+        return labels.toString();
+    }
+
+    private synchronized void offer(RenderDelta delta) {
+        if (overflow != null) {
+            overflow.merge(delta);
+            delta = overflow;
+        }
+        overflow = queue.offer(delta) ? null : delta;
+    }
+
+    /**
+     * Takes every pending change, merged into one delta. Called by the Gui once per frame.
+     * @return The changes, or null if there are none.
+     */
+    synchronized RenderDelta drain() {
+        RenderDelta merged = queue.poll();
+        if (merged == null) {
+            merged = overflow;
+        } else {
+            RenderDelta next;
+            while ((next = queue.poll()) != null) {
+                merged.merge(next);
+            }
+            if (overflow != null) {
+                merged.merge(overflow);
+            }
+        }
+        overflow = null;
+        return merged;
+    }
+}
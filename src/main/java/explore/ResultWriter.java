@@ -0,0 +1,113 @@
+package main.java.explore;
+
+import main.java.explore.metrics.CampaignProgress;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Appends the result row of every test case to the output file as soon as the case completes,
+ * so the results of a killed campaign are not lost. Meant to run in a single thread, owning the output file.
+ * Every row ends with a status: complete (every repeat completed), partial (some repeats were cancelled or skipped,
+ * the statistics are of the completed ones), unfinished (still running or not started when the executor gave up)
+ * or failed (the case threw). Unfinished and failed rows have no statistics, their values are NaN.
+ */
+public class ResultWriter implements Runnable {
+    private static final long POLL_MILLIS = 500;
+    private static final double[] NO_RESULT = new double[TestCase.STATISTICS_COUNT];
+    static {
+        Arrays.fill(NO_RESULT, Double.NaN);
+    }
+    private static final Logger logger = Logger.getLogger(ResultWriter.class.getName());
+
+    private final String outputFile;
+    private final CompletionService<double[]> completionService;
+    //cases submitted but not written yet
+    private final ConcurrentHashMap<Future<double[]>, TestCase> pending = new ConcurrentHashMap<>();
+    private volatile boolean executorDone = false;
+    private final CampaignProgress progress;
+
+    public ResultWriter(String outputFile, Executor executor, CampaignProgress progress) {
+        this.outputFile = outputFile;
+        this.completionService = new ExecutorCompletionService<>(executor);
+        this.progress = progress;
+    }
+
+    public void submit(TestCase testCase) {
+        pending.put(completionService.submit(testCase), testCase);
+    }
+
+    /**
+     * Tells the writer that no more cases will complete.
+     */
+    public void executorDone() {
+        executorDone = true;
+    }
+
+    @Override
+    public void run() {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(outputFile, true))) {
+            while (!pending.isEmpty()) {
+                Future<double[]> future = completionService.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (future != null) {
+                    write(writer, future);
+                }
+                else if (executorDone) {
+                    //write what completed meanwhile, the rest did not finish
+                    while ((future = completionService.poll()) != null) {
+                        write(writer, future);
+                    }
+                    for (TestCase testCase : pending.values()) {
+                        writeRow(writer, testCase, NO_RESULT, "unfinished");
+                    }
+                    pending.clear();
+                }
+            }
+            logger.log(Level.INFO, "Results written into the output file.");
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "FileWriter error on writing the output file.");
+        } catch (InterruptedException e) {
+            logger.log(Level.SEVERE, "Result writer interrupted.");
+        }
+    }
+
+    private void write(BufferedWriter writer, Future<double[]> future) throws IOException, InterruptedException {
+        TestCase testCase = pending.remove(future);
+        try {
+            double[] result = future.get();
+            int completedRepeats = (int) result[TestCase.COMPLETED_REPEATS];
+            writeRow(writer, testCase, result, completedRepeats == testCase.getRepeats() ? "complete" : "partial");
+        } catch (ExecutionException | CancellationException e) {
+            logger.log(Level.SEVERE, "Error reading the result of " + testCase + ".");
+            e.printStackTrace();
+            writeRow(writer, testCase, NO_RESULT, "failed");
+        }
+        progress.caseDone();
+    }
+
+    private void writeRow(BufferedWriter writer, TestCase testCase, double[] result, String status) throws IOException {
+        writer.write(testCase.toString());
+        for (double value : result) {
+            writer.write(";" + format(value));
+        }
+        writer.write(";" + status);
+        writer.newLine();
+        writer.flush();
+    }
+
+    /**
+     * Whole numbers are written without decimals, the rest with two, missing values as NaN.
+     */
+    private static String format(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        return value == Math.rint(value) ? Long.toString((long) value) : String.format(Locale.ROOT, "%.2f", value);
+    }
+}
@@ -0,0 +1,60 @@
+package main.java.explore;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time and step limits of a test case: a time limit for the whole case, and a time and a step limit
+ * for each repeat. Zero means unlimited. Deadlines are System.nanoTime() values.
+ */
+public class RunBudget {
+    public static final RunBudget UNLIMITED = new RunBudget(0, 0, 0);
+    public static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private final long caseNanos, repeatNanos;
+    private final int repeatMaxSteps;
+
+    /**
+     * @param caseTimeout Time limit of a test case in seconds.
+     * @param repeatTimeout Time limit of a repeat in seconds.
+     * @param repeatMaxSteps Step limit of a repeat.
+     */
+    public RunBudget(int caseTimeout, int repeatTimeout, int repeatMaxSteps) {
+        this.caseNanos = TimeUnit.SECONDS.toNanos(caseTimeout);
+        this.repeatNanos = TimeUnit.SECONDS.toNanos(repeatTimeout);
+        this.repeatMaxSteps = repeatMaxSteps;
+    }
+
+    public long caseDeadline(long startTime) {
+        return caseNanos > 0 ? startTime + caseNanos : NO_DEADLINE;
+    }
+
+    /**
+     * Returns the deadline of a repeat, which is never after the deadline of its case.
+     * @param startTime Start of the repeat.
+     * @param caseDeadline Deadline of the case.
+     * @return The deadline.
+     */
+    public long repeatDeadline(long startTime, long caseDeadline) {
+        if (repeatNanos == 0) {
+            return caseDeadline;
+        }
+        long deadline = startTime + repeatNanos;
+        return caseDeadline != NO_DEADLINE && caseDeadline - deadline < 0 ? caseDeadline : deadline;
+    }
+
+    public static boolean hasPassed(long deadline) {
+        return deadline != NO_DEADLINE && System.nanoTime() - deadline >= 0;
+    }
+
+    public static long remainingNanos(long deadline) {
+        return deadline == NO_DEADLINE ? Long.MAX_VALUE : Math.max(0, deadline - System.nanoTime());
+    }
+
+    public boolean stepsExceeded(int steps) {
+        return repeatMaxSteps > 0 && steps >= repeatMaxSteps;
+    }
+
+    public int getRepeatMaxSteps() {
+        return repeatMaxSteps;
+    }
+}
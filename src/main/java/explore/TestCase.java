@@ -1,57 +1,182 @@
 package main.java.explore;
 
 import main.java.explore.algorithm.Algorithm;
-import main.java.explore.graph.EdgeState;
+import main.java.explore.graph.CompactGraph;
+import main.java.explore.graph.GraphCache;
 import main.java.explore.graph.GraphManager;
 import main.java.explore.graph.GraphType;
-import org.graphstream.graph.Edge;
+import main.java.explore.metrics.AlgorithmInitEvent;
+import main.java.explore.metrics.AlgorithmMetrics;
+import main.java.explore.metrics.CampaignProgress;
+import main.java.explore.metrics.RepeatEvent;
+import main.java.explore.metrics.RunMetrics;
+import main.java.explore.util.StreamingStatistics;
 import org.graphstream.graph.Graph;
 
-import javax.swing.*;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-public class TestCase implements Callable<int[]> {
+public class TestCase implements Callable<double[]> {
+    //ticks counted locally before they are added to the campaign progress
+    private static final int PROGRESS_TICKS = 256;
+    //length of the statistics (see getStatistics) and the position of the completed repeats
+    public static final int STATISTICS_COUNT = 11;
+    public static final int COMPLETED_REPEATS = 7;
     protected static int idc;
     private final int id;
     private final Graph graph;
+    private CompactGraph compactGraph;
+    private GraphType graphType;
+    private final int graphSize, avgDegree;
+    //imported graph, instead of a generated one
+    private final Path graphFile;
     private final ArrayList<Agent> agents = new ArrayList<>();
     private Algorithm<?, ?> algorithm;
+    private final Supplier<Algorithm<?, ?>> algorithmFactory;
     private boolean paused = true;
     private Thread thread = new Thread();
-    private JLabel stepCountLabel;
+    //changes of the run for the Gui, null in headless runs
+    private RenderQueue renderQueue;
+    //time between two ticks of a Gui run
+    private long tickNanos;
     private final int repeats;
     private boolean runsInGui = false;
     private int agentNum, stepCount;
+    private final ExecutionMode executionMode;
+    private ParallelStepper stepper;
+    //next step of every agent in the current tick, by agent index
+    private int[] nextSteps = new int[0];
+    private AsyncRunner asyncRunner;
+    //true for a single repeat split off a test case
+    private final boolean repeatPart;
+    //index of the first repeat, picks the graphs of the repeats from the cache
+    private final int firstRepeat;
+    private final GraphCache graphCache;
+    private final RunBudget budget;
+    private long caseDeadline = RunBudget.NO_DEADLINE;
+    //statistics of the last run, only of the repeats that completed
+    private boolean explorationCheck;
+    private StreamingStatistics steps, totalMoves, wallClockTimes;
+    //moves are recorded into this directory, if set (ticking modes only)
+    private Path traceDirectory;
+    private TraceRecorder traceRecorder;
+    //timings and counters of the algorithm, null if disabled
+    private boolean metricsEnabled;
+    private RunMetrics runMetrics;
+    //progress of the campaign, if run by the TestManager
+    private CampaignProgress progress;
+    //ticks of the running repeat already added to the progress
+    private int reportedTicks;
+    //index of the running repeat, for the JFR events
+    private int repeat;
 
     private static final Logger logger = Logger.getLogger(TestCase.class.getName());
 
     private final AtomicBoolean stopped = new AtomicBoolean(true);
 
-    public TestCase(Graph graph, Algorithm<?, ?> algorithm, int agentNum, int repeats) {
+    /**
+     * Creates a test case for headless runs.
+     * @param algorithmFactory Creates the algorithm. Repeats running in parallel need their own instances.
+     * @param budget Time and step limits. Repeats exceeding them are cancelled and left out of the statistics.
+     * @param graphCache Source of the graphs, test cases with the same graph parameters get the same graphs.
+     */
+    public TestCase(GraphType graphType, int graphSize, int avgDegree, Supplier<Algorithm<?, ?>> algorithmFactory,
+                    int agentNum, int repeats, ExecutionMode executionMode, RunBudget budget, GraphCache graphCache) {
+        this(graphType, graphSize, avgDegree, null, algorithmFactory, agentNum, repeats, executionMode, budget, graphCache);
+    }
+
+    /**
+     * Creates a test case on an imported graph for headless runs. Every repeat runs on the same graph.
+     * @param graphFile Edge list or DGS file.
+     */
+    public TestCase(Path graphFile, Supplier<Algorithm<?, ?>> algorithmFactory,
+                    int agentNum, int repeats, ExecutionMode executionMode, RunBudget budget, GraphCache graphCache) {
+        this(null, 0, 0, graphFile, algorithmFactory, agentNum, repeats, executionMode, budget, graphCache);
+    }
+
+    private TestCase(GraphType graphType, int graphSize, int avgDegree, Path graphFile, Supplier<Algorithm<?, ?>> algorithmFactory,
+                     int agentNum, int repeats, ExecutionMode executionMode, RunBudget budget, GraphCache graphCache) {
         logger.setUseParentHandlers(true);
         this.id = ++idc;
-        this.graph = graph;
-        this.algorithm = algorithm;
+        this.graph = null;
+        this.graphType = graphType;
+        this.graphSize = graphSize;
+        this.avgDegree = avgDegree;
+        this.graphFile = graphFile;
+        this.algorithmFactory = algorithmFactory;
+        this.algorithm = algorithmFactory.get();
         this.repeats = repeats;
         this.agentNum = agentNum;
+        this.executionMode = executionMode;
+        this.repeatPart = false;
+        this.firstRepeat = 0;
+        this.budget = budget;
+        this.graphCache = graphCache;
     }
 
+    /**
+     * Creates a single repeat of a test case, with its own algorithm instance and graph.
+     * @param testCase The test case.
+     * @param repeat Index of the repeat.
+     */
+    private TestCase(TestCase testCase, int repeat) {
+        this.id = testCase.id;
+        this.graph = null;
+        this.graphType = testCase.graphType;
+        this.graphSize = testCase.graphSize;
+        this.avgDegree = testCase.avgDegree;
+        this.graphFile = testCase.graphFile;
+        this.traceDirectory = testCase.traceDirectory;
+        this.metricsEnabled = testCase.metricsEnabled;
+        this.progress = testCase.progress;
+        this.algorithmFactory = testCase.algorithmFactory;
+        this.algorithm = algorithmFactory.get();
+        this.repeats = 1;
+        this.agentNum = testCase.agentNum;
+        this.executionMode = testCase.executionMode;
+        this.repeatPart = true;
+        this.firstRepeat = repeat;
+        this.budget = testCase.budget;
+        this.graphCache = testCase.graphCache;
+        this.caseDeadline = testCase.caseDeadline;
+    }
+
+    /**
+     * Creates a test case for the Gui. The graph is only used for rendering, the simulation runs on its compact copy.
+     * @param graph The graph to render, holding the graph parameters as attributes.
+     */
     public TestCase(Graph graph) {
         this.id = ++idc;
         this.graph = graph;
+        this.graphType = graph.getAttribute(GraphManager.GRAPH_TYPE_LABEL);
+        this.graphSize = graph.getAttribute(GraphManager.GRAPH_SIZE_LABEL);
+        this.avgDegree = graph.getAttribute(GraphManager.GRAPH_DEGREE_LABEL);
+        this.graphFile = null;
         this.repeats = 1;
+        this.executionMode = ExecutionMode.SEQUENTIAL;
+        this.algorithmFactory = null;
+        this.repeatPart = false;
+        this.firstRepeat = 0;
+        this.budget = RunBudget.UNLIMITED;
+        this.graphCache = null;
     }
 
     /**
-     * This special initialization should only be called from the Gui. It enables changing agent numbers
-     * and the type of the graph.
+     * This special initialization should only be called from the Gui's event thread, as it rebuilds the rendered
+     * graph. It enables changing agent numbers and the type of the graph.
      * @param graphType Type of the graph. If changes, the graph will be reset.
      * @param algorithm Algorithm.
      * @param agentNum Number of agents.
@@ -60,7 +185,8 @@ public class TestCase implements Callable<int[]> {
     public synchronized void init(GraphType graphType, Algorithm<?, ?> algorithm, int agentNum, boolean regenerateGraph) {
         assert(runsInGui);
         assert(stopped.get() || paused);
-        GraphType oldGrapType = graph.getAttribute(GraphManager.GRAPH_TYPE_LABEL);
+        GraphType oldGrapType = this.graphType;
+        this.graphType = graphType;
         graph.setAttribute(GraphManager.GRAPH_TYPE_LABEL, graphType);
         this.algorithm = algorithm;
         this.agentNum = agentNum;
@@ -73,21 +199,47 @@ public class TestCase implements Callable<int[]> {
      */
     private synchronized void reset(boolean regenerateGraph) {
         if (regenerateGraph) {
-            GraphManager.regenerateGraph(graph);
+            compactGraph = GraphManager.regenerateGraph(graphType, graphSize, avgDegree, runsInGui);
+            if (runsInGui) {
+                GraphManager.materializeGraph(compactGraph, graph);
+            }
         }
         paused = runsInGui;
+        AlgorithmInitEvent initEvent = new AlgorithmInitEvent();
+        initEvent.begin();
         try {
-            algorithm.init(graph, agents, agentNum);
+            algorithm.init(compactGraph, agents, agentNum);
+            initEvent.end();
+            if (initEvent.shouldCommit()) {
+                initEvent.testCase = id;
+                initEvent.algorithm = algorithm.getName();
+                initEvent.repeat = repeat;
+                initEvent.nodes = compactGraph.getNodeCount();
+                initEvent.edges = compactGraph.getEdgeCount();
+                initEvent.agents = agentNum;
+                initEvent.commit();
+            }
         } catch (Exception e) {
             logger.log(Level.SEVERE, "TestCase" + id + " resetting: algorithm init failed.");
             e.printStackTrace();
         }
         stepCount = 0;
+        if (nextSteps.length != agents.size()) {
+            nextSteps = new int[agents.size()];
+        }
+        stepper = null;
+        asyncRunner = executionMode == ExecutionMode.ASYNC ? new AsyncRunner(algorithm, compactGraph, agents, budget) : null;
+        if (executionMode == ExecutionMode.PARALLEL) {
+            if (algorithm.supportsParallelTick()) {
+                stepper = new ParallelStepper(ForkJoinPool.commonPool(), algorithm, compactGraph, agents);
+            } else {
+                logger.log(Level.INFO, "TestCase" + id + ": " + algorithm.getName() + " runs sequentially.");
+            }
+        }
 
         if (runsInGui) {
-            algorithm.createLabels(graph);
-            algorithm.updateLabels(graph, agents);
-            showStepCount();
+            GraphManager.resetGraph(graph, algorithm.getStartNodeIndexes());
+            renderQueue.reset(algorithm, agents, stepCount, stopped.get());
         }
     }
 
@@ -113,113 +265,487 @@ public class TestCase implements Callable<int[]> {
     }
 
     @Override
-    public int[] call() throws Exception {
-        logger.log(Level.INFO, "TestCase" + id + " run started.");
-        LinkedList<Integer> results = new LinkedList<>();
-        boolean explorationCheck = true;
+    public double[] call() throws Exception {
+        if (!repeatPart) {
+            caseDeadline = budget.caseDeadline(System.nanoTime());
+        }
+        //on a work-stealing pool the repeats are split into separate tasks, so idle threads can steal them
+        if (!runsInGui && repeats > 1 && ForkJoinTask.inForkJoinPool()) {
+            return callRepeatsInParallel();
+        }
+
+        if (!repeatPart) {
+            logger.log(Level.INFO, "TestCase" + id + " run started.");
+        }
+        steps = new StreamingStatistics();
+        totalMoves = new StreamingStatistics();
+        wallClockTimes = new StreamingStatistics();
+        explorationCheck = true;
 
         for (int i = 0; i < repeats; i++) {
-            stopped.set(false);
-            if (!runsInGui) {
-                reset(true);
+            //cooperative cancellation: the case is out of time, skip the remaining repeats
+            if (RunBudget.hasPassed(caseDeadline)) {
+                logger.log(Level.INFO, "TestCase" + id + " is out of time, " + (repeats - i) + " repeats skipped.");
+                if (progress != null) {
+                    progress.repeatsSkipped(repeats - i);
+                }
+                break;
+            }
+            RepeatEvent repeatEvent = new RepeatEvent();
+            repeatEvent.begin();
+            startRepeat(firstRepeat + i);
+            long startTime = System.nanoTime();
+            long repeatDeadline = budget.repeatDeadline(startTime, caseDeadline);
+            boolean completed = true;
+            long lastTick = startTime;
+
+            if (asyncRunner != null) {
+                try {
+                    completed = asyncRunner.run(repeatDeadline);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    completed = false;
+                    i = repeats;
+                }
+                //there are no ticks: the steps are the moves of the busiest agent
+                stepCount = agents.stream().mapToInt(Agent::getMoves).max().orElse(0);
+                stopped.set(true);
             }
 
             //loop
             while (!stopped.get()) {
                 if (Thread.currentThread().isInterrupted()) {
                     i = repeats;
+                    completed = false;
+                    stopped.set(true);
+                }
+                else if (RunBudget.hasPassed(repeatDeadline) || budget.stepsExceeded(stepCount)) {
+                    completed = false;
                     stopped.set(true);
                 }
                 else if (!paused) {
                     tick();
                 }
-                //InterruptedException is propagated
-                //TODO: put into loop
                 if (runsInGui) {
-                    Thread.sleep(1000);
+                    lastTick = awaitTick(lastTick);
                 }
             }
-            explorationCheck = explorationCheck &&
-                    graph.getEdgeSet().stream().allMatch(e -> e.getAttribute(Algorithm.EDGESTATEID) != EdgeState.UNVISITED);
-            results.add(stepCount);
+
+            endRepeat(completed);
+            commitRepeatEvent(repeatEvent, completed);
+            if (progress != null) {
+                progress.repeatDone(completed);
+            }
+            if (!completed) {
+                logger.log(Level.INFO, "TestCase" + id + " repeat cancelled after " + stepCount + " steps.");
+                continue;
+            }
+            wallClockTimes.add(System.nanoTime() - startTime);
+            explorationCheck = explorationCheck && algorithm.isExplored();
+            steps.add(stepCount);
+            totalMoves.add(agents.stream().mapToLong(Agent::getMoves).sum());
         }
 
         if (runsInGui) {
             System.out.println("Testcase run done.");
-            showStepCount();
+            synchronized (this) {
+                renderQueue.publish(algorithm, agents, stepCount, stopped.get());
+            }
         }
 
-        logger.log(Level.INFO, "TestCase" + id + (Thread.currentThread().isInterrupted() ? " interrupted." : " done."));
-        return getStatistics(explorationCheck, results);
+        if (!repeatPart) {
+            logger.log(Level.INFO, "TestCase" + id + (Thread.currentThread().isInterrupted() ? " interrupted." : " done."));
+        }
+        return getStatistics();
     }
 
-    private synchronized void tick () {
-        AtomicBoolean allDone = new AtomicBoolean(true);
-        stepCount++;
+    /**
+     * Runs every repeat as a separate task with its own graph on the current ForkJoin pool,
+     * then merges the results of the repeats into the statistics of this test case.
+     * @return The statistics.
+     */
+    private double[] callRepeatsInParallel() {
+        logger.log(Level.INFO, "TestCase" + id + " run started, " + repeats + " repeats in parallel.");
+        ArrayList<TestCase> parts = new ArrayList<>(repeats);
+        ArrayList<ForkJoinTask<double[]>> tasks = new ArrayList<>(repeats);
+        for (int i = 0; i < repeats; i++) {
+            TestCase part = new TestCase(this, i);
+            parts.add(part);
+            tasks.add(ForkJoinTask.adapt((Callable<double[]>) part));
+        }
+        boolean interrupted = false;
+        try {
+            ForkJoinTask.invokeAll(tasks);
+        } catch (CancellationException | CompletionException e) {
+            interrupted = true;
+        }
+        //invokeAll gives up at the first failure, wait for the other repeats before reading their statistics
+        for (ForkJoinTask<double[]> task : tasks) {
+            task.quietlyJoin();
+        }
 
-        //get next step or stop
-        //this has to be done in a different cycle from the move-evaluation
-        HashMap<Agent, Edge> agentNextStep = new HashMap<>();
-        agents.stream().filter(Agent::isRunning).forEach(a -> {
-            if (algorithm.agentStops(graph, agents, a)) {
-                a.stop();
-            } else {
-                agentNextStep.put(a, algorithm.selectNextStep(a));
-                allDone.set(false);
+        steps = new StreamingStatistics();
+        totalMoves = new StreamingStatistics();
+        wallClockTimes = new StreamingStatistics();
+        explorationCheck = true;
+        for (int i = 0; i < repeats; i++) {
+            TestCase part = parts.get(i);
+            //a cancelled or failed repeat may still be running, its statistics are not merged
+            if (tasks.get(i).isCompletedNormally()) {
+                //like a serial run, the row shows the graph of the last repeat
+                compactGraph = part.compactGraph;
+                explorationCheck = explorationCheck && part.explorationCheck;
+                steps.merge(part.steps);
+                totalMoves.merge(part.totalMoves);
+                wallClockTimes.merge(part.wallClockTimes);
             }
-        });
+        }
 
-        //move agents
-        agents.stream().filter(Agent::isRunning).forEach(a -> {
-            Edge moveOn = agentNextStep.get(a);
-            a.move(moveOn);
-            algorithm.evaluateOnArrival(a, moveOn);
-        });
+        logger.log(Level.INFO, "TestCase" + id + (interrupted || Thread.currentThread().isInterrupted() ? " interrupted." : " done."));
+        return getStatistics();
+    }
+
+    /**
+     * Prepares a repeat: its graph (headless runs), the algorithm and the agents, the metrics and the trace.
+     * Package-private for the tick benchmark.
+     * @param repeat Index of the repeat, picks its graph from the cache.
+     */
+    void startRepeat(int repeat) {
+        stopped.set(false);
+        this.repeat = repeat;
+        reportedTicks = 0;
+        if (!runsInGui) {
+            compactGraph = graphFile != null ? graphCache.getGraph(graphFile)
+                    : graphCache.getGraph(graphType, graphSize, avgDegree, repeat);
+            reset(false);
+        }
+        if (metricsEnabled) {
+            if (runMetrics == null) {
+                runMetrics = new RunMetrics(AlgorithmMetrics.of(algorithm.getName()));
+            }
+            runMetrics.startRepeat(agents, algorithm.getEdgeStore());
+        }
+        if (traceDirectory != null && asyncRunner == null) {
+            startTrace(repeat);
+        }
+    }
+
+    /**
+     * Closes the trace and flushes the metrics and the ticks of a repeat. Package-private for the tick benchmark.
+     * @param completed False if the repeat was cancelled.
+     */
+    void endRepeat(boolean completed) {
+        if (progress != null) {
+            progress.ticks(stepCount - reportedTicks);
+            reportedTicks = stepCount;
+        }
+        stopTrace();
+        if (runMetrics != null) {
+            runMetrics.endRepeat(completed);
+        }
+    }
+
+    /**
+     * @return True if the agents of the current repeat have stopped, or the repeat was cancelled.
+     */
+    boolean isStopped() {
+        return stopped.get();
+    }
+
+    /**
+     * Runs a tick of the current repeat. Package-private for the tick benchmark.
+     */
+    synchronized void tick () {
+        stepCount++;
+
+        long tickStart = runMetrics != null ? System.nanoTime() : 0;
+        boolean allDone;
+        if (stepper != null) {
+            allDone = stepper.tick();
+        } else if (runMetrics != null && runMetrics.samplePhases()) {
+            allDone = timedSequentialTick(runMetrics);
+        } else {
+            allDone = sequentialTick();
+        }
+        if (runMetrics != null) {
+            runMetrics.tick(System.nanoTime() - tickStart);
+        }
+        if (progress != null && stepCount - reportedTicks >= PROGRESS_TICKS) {
+            progress.ticks(stepCount - reportedTicks);
+            reportedTicks = stepCount;
+        }
+
+        if (traceRecorder != null) {
+            try {
+                traceRecorder.recordTick(agents);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "TestCase" + id + ": trace could not be written, recording stopped.");
+                stopTrace();
+            }
+        }
 
         //check finished state
-        if (allDone.get()) {
+        if (allDone) {
             stopped.set(true);
             //System.out.println("Graph explored! " + statistics);
         }
 
-        //update labels if
+        //the Gui renders the changes on its own schedule
         if (runsInGui) {
-            algorithm.updateLabels(graph, agents);
-            showStepCount();
+            renderQueue.publish(algorithm, agents, stepCount, stopped.get());
+        }
+    }
+
+    /**
+     * Runs a tick one agent after the other.
+     * @return True if every agent has stopped.
+     */
+    private boolean sequentialTick () {
+        //the steps have to be selected in a different cycle from the move-evaluation
+        boolean allDone = selectionPhase();
+        arrivalPhase();
+        return allDone;
+    }
+
+    /**
+     * First phase of a sequential tick: stops the agents that are done and selects the next step of the others.
+     * Package-private for the phase benchmark.
+     * @return True if every agent has stopped.
+     */
+    boolean selectionPhase() {
+        boolean allDone = true;
+        int agentNum = agents.size();
+        for (int i = 0; i < agentNum; i++) {
+            Agent agent = agents.get(i);
+            if (!agent.isRunning()) {
+                continue;
+            }
+            if (algorithm.agentStops(agents, agent)) {
+                agent.stop();
+            } else {
+                nextSteps[i] = algorithm.selectNextStep(agent);
+                allDone = false;
+            }
         }
+        return allDone;
+    }
+
+    /**
+     * Second phase of a sequential tick: moves the running agents on their selected steps and evaluates their arrival.
+     * Package-private for the phase benchmark.
+     */
+    void arrivalPhase() {
+        int agentNum = agents.size();
+        for (int i = 0; i < agentNum; i++) {
+            Agent agent = agents.get(i);
+            if (agent.isRunning()) {
+                agent.move(compactGraph, nextSteps[i]);
+                algorithm.evaluateOnArrival(agent, nextSteps[i]);
+            }
+        }
+    }
+
+    /**
+     * Runs the stop check of the running agents, without stopping them. Package-private for the phase benchmark.
+     * @return Number of agents that would stop.
+     */
+    int countStopping() {
+        int stopping = 0;
+        for (int i = 0; i < agents.size(); i++) {
+            Agent agent = agents.get(i);
+            if (agent.isRunning() && algorithm.agentStops(agents, agent)) {
+                stopping++;
+            }
+        }
+        return stopping;
+    }
+
+    /**
+     * Runs a sequential tick, recording the time spent in each phase.
+     * @param metrics The metrics of the run.
+     * @return True if every agent has stopped.
+     */
+    private boolean timedSequentialTick (RunMetrics metrics) {
+        boolean allDone = true;
+        int agentNum = agents.size();
+        long stopCheckNanos = 0, selectNanos = 0, moveNanos = 0, evaluateNanos = 0;
+
+        long time = System.nanoTime();
+        for (int i = 0; i < agentNum; i++) {
+            Agent agent = agents.get(i);
+            if (!agent.isRunning()) {
+                continue;
+            }
+            boolean stops = algorithm.agentStops(agents, agent);
+            long checked = System.nanoTime();
+            stopCheckNanos += checked - time;
+            if (stops) {
+                agent.stop();
+            } else {
+                nextSteps[i] = algorithm.selectNextStep(agent);
+                allDone = false;
+            }
+            time = System.nanoTime();
+            selectNanos += time - checked;
+        }
+
+        for (int i = 0; i < agentNum; i++) {
+            Agent agent = agents.get(i);
+            if (agent.isRunning()) {
+                agent.move(compactGraph, nextSteps[i]);
+                long moved = System.nanoTime();
+                moveNanos += moved - time;
+                algorithm.evaluateOnArrival(agent, nextSteps[i]);
+                time = System.nanoTime();
+                evaluateNanos += time - moved;
+            }
+        }
+
+        metrics.phases(stopCheckNanos, selectNanos, moveNanos, evaluateNanos, !allDone);
+        return allDone;
+    }
+
+    private void commitRepeatEvent(RepeatEvent event, boolean completed) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.testCase = id;
+            event.algorithm = algorithm.getName();
+            event.graphType = graphFile != null ? graphFile.getFileName().toString() : graphType.name();
+            event.graphSize = graphFile != null ? compactGraph.getNodeCount() : graphSize;
+            event.avgDegree = avgDegree;
+            event.agents = agentNum;
+            event.repeat = repeat;
+            event.executionMode = executionMode.name();
+            event.steps = stepCount;
+            event.completed = completed;
+            event.commit();
+        }
+    }
+
+    /**
+     * Publishes the timings and counters of the runs to the metrics of the algorithm (see AlgorithmMetrics).
+     * @param metricsEnabled True to collect metrics.
+     */
+    public void setMetricsEnabled(boolean metricsEnabled) {
+        this.metricsEnabled = metricsEnabled;
+    }
+
+    /**
+     * Counts the ticks and repeats of the runs into the progress of the campaign.
+     * @param progress The progress.
+     */
+    public void setProgress(CampaignProgress progress) {
+        this.progress = progress;
+    }
+
+    public int getRepeats() {
+        return repeats;
+    }
+
+    private void startTrace(int repeat) {
+        Path file = traceDirectory.resolve("TestCase" + id + "_" + repeat + TraceRecorder.EXTENSION);
+        try {
+            traceRecorder = new TraceRecorder(file, algorithm.getName(), compactGraph, agents);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "TestCase" + id + ": trace file could not be created: " + file);
+        }
+    }
+
+    private void stopTrace() {
+        if (traceRecorder == null) {
+            return;
+        }
+        try {
+            traceRecorder.close();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "TestCase" + id + ": trace file could not be closed.");
+        }
+        traceRecorder = null;
+    }
+
+    /**
+     * Records the moves of every repeat into a trace file in the directory, that the Gui can replay.
+     * Async runs have no ticks, they are not recorded.
+     * @param traceDirectory The directory, or null to record nothing.
+     */
+    public void setTraceDirectory(Path traceDirectory) {
+        this.traceDirectory = traceDirectory;
     }
 
     public Graph getGraph () {
         return graph;
     }
 
-    private int[] getStatistics(boolean explorationCheck, LinkedList<Integer> results) {
-        int[] stats = new int[5];
+    /**
+     * Computes the statistics of the completed repeats: all edges visited (1/0), min, max, average and deviation
+     * of the steps, average total moves, average wall clock time in ms, the number of completed repeats,
+     * and the 50th, 95th and 99th percentiles of the steps. If no repeat completed, only the exploration check (0)
+     * and the completed repeats (0) are given, the rest is NaN.
+     */
+    private double[] getStatistics() {
+        double[] stats = new double[STATISTICS_COUNT];
+        if (steps.getCount() == 0) {
+            Arrays.fill(stats, Double.NaN);
+            stats[0] = 0;
+            stats[COMPLETED_REPEATS] = 0;
+            return stats;
+        }
 
         stats[0] = explorationCheck ? 1 : 0;
-        stats[1] = Collections.min(results);
-        stats[2] = Collections.max(results);
-        stats[3] = (int)(((double)results.stream().reduce(0, Integer::sum)) / ((double) results.size()));
-        stats[4] = (int)Math.sqrt(results.stream().map(i -> Math.pow(i-stats[3],2)).reduce(0.0, Double::sum) / ((double) results.size()));
+        stats[1] = steps.getMin();
+        stats[2] = steps.getMax();
+        stats[3] = steps.getMean();
+        stats[4] = steps.getDeviation();
+        stats[5] = totalMoves.getMean();
+        stats[6] = wallClockTimes.getMean() / 1_000_000;
+        stats[COMPLETED_REPEATS] = steps.getCount();
+        stats[8] = steps.quantile(0.5);
+        stats[9] = steps.quantile(0.95);
+        stats[10] = steps.quantile(0.99);
         return stats;
     }
 
-    private void showStepCount() {
-        assert (runsInGui);
-        stepCountLabel.setText((stopped.get() ? Gui.STEP_TOTAL_LABEL : Gui.STEP_COUNT_LABEL) + stepCount);
+    /**
+     * Makes this a Gui test case: the changes of the runs are published for rendering instead of applied to the graph.
+     * @param tickMillis Time between two ticks of a run, in milliseconds.
+     * @return The queue of the changes, to be drained by the Gui.
+     */
+    public RenderQueue enableRendering(int tickMillis) {
+        this.renderQueue = new RenderQueue();
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.runsInGui = true;
+        return renderQueue;
     }
 
-    public void setStepCountLabel(JLabel stepCountLabel) {
-        this.stepCountLabel = stepCountLabel;
-        this.runsInGui = true;
+    /**
+     * Waits until the next tick of a Gui run is due. A run that fell behind goes on from now, without catching up.
+     * The wait ends early if the run is stopped, paused or unpaused, or the thread is interrupted.
+     * @param lastTick System.nanoTime() of the last tick.
+     * @return System.nanoTime() of the next tick.
+     */
+    private long awaitTick(long lastTick) {
+        long nextTick = lastTick + tickNanos;
+        long now = System.nanoTime();
+        boolean wasPaused = paused;
+        while (nextTick - now > 0 && !stopped.get() && paused == wasPaused && !Thread.currentThread().isInterrupted()) {
+            LockSupport.parkNanos(this, nextTick - now);
+            now = System.nanoTime();
+        }
+        //woken early or fell behind
+        if (nextTick - now > 0 || now - nextTick > tickNanos) {
+            return now;
+        }
+        return nextTick;
     }
 
     public synchronized void pause() {
         paused = !paused;
+        LockSupport.unpark(thread);
     }
 
     public synchronized void stop() {
         stopped.set(true);
+        LockSupport.unpark(thread);
     }
 
     public synchronized void tickOne() {
@@ -230,12 +756,12 @@ public class TestCase implements Callable<int[]> {
     public String toString() {
         return "TestCase" + id + ";" +
                 algorithm.getName() + ";" +
-                agents.size() + ";" +
-                graph.getAttribute(GraphManager.GRAPH_TYPE_LABEL) + ";" +
-                graph.getAttribute(GraphManager.GRAPH_SIZE_LABEL) + ";" +
-                graph.getNodeCount() + ";" +
-                graph.getAttribute(GraphManager.GRAPH_DEGREE_LABEL) + ";" +
-                graph.getEdgeCount() + ";" +
+                agentNum + ";" +
+                (graphFile != null ? graphFile.getFileName() : graphType) + ";" +
+                graphSize + ";" +
+                (compactGraph == null ? 0 : compactGraph.getNodeCount()) + ";" +
+                avgDegree + ";" +
+                (compactGraph == null ? 0 : compactGraph.getEdgeCount()) + ";" +
                 repeats;
     }
 }
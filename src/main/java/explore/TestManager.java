@@ -1,14 +1,17 @@
 package main.java.explore;
 
 import main.java.explore.algorithm.*;
+import main.java.explore.graph.GraphCache;
 import main.java.explore.graph.GraphManager;
 import main.java.explore.graph.GraphType;
-import org.graphstream.graph.Graph;
+import main.java.explore.metrics.CampaignPhaseEvent;
+import main.java.explore.metrics.CampaignProgress;
 
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.*;
@@ -22,9 +25,14 @@ public class TestManager {
     public static final String MULTIAGENTDDFSCODE = "maddfs";
     public static final String MULTIAGENTEDDFSCODE = "maeddfs";
     private static final char COMMENTLINE = '#';
+    //graph source token of an imported graph, instead of a graph type
+    private static final String GRAPHFILEPREFIX = "file:";
+    //grace period for interrupted cases to report their partial results, in seconds
+    private static final int SHUTDOWN_GRACE = 5;
 
     private final Properties properties;
-    private final HashMap<TestCase, Future<int[]>> testCases = new HashMap<>();
+    private final ArrayList<TestCase> testCases = new ArrayList<>();
+    private GraphCache graphCache;
     private static final Logger logger = Logger.getLogger(TestCase.class.getName());
 
     public TestManager(String inputFile, String outputFile, Properties properties) {
@@ -32,36 +40,65 @@ public class TestManager {
         logger.setUseParentHandlers(true);
 
         //read input file
+        CampaignPhaseEvent phaseEvent = beginPhase();
         try {
             readTestCaseFile(inputFile);
         } catch (IOException e) {
             logger.log(Level.SEVERE, "Test cases input file could not be opened.");
             return;
         }
+        endPhase(phaseEvent, "readInput", testCases.size());
 
         //check output file, write headers
+        phaseEvent = beginPhase();
         try {
             printResultsHeaders(outputFile);
         } catch (IOException e) {
             logger.log(Level.SEVERE, "Test cases output file could not be opened.");
             return;
         }
+        endPhase(phaseEvent, "writeHeaders", testCases.size());
 
         logger.log(Level.INFO, "TestManager created.");
 
         //do the things
-        runTests();
-        printResults(outputFile);
+        runTests(outputFile);
     }
 
-    private void runTests() {
+    private void runTests(String outputFile) {
         int timeout = Main.getIntProperty(properties, "testcase.timeout", Main.TESTCASE_TIMEOUT);
         int cores = Runtime.getRuntime().availableProcessors();
 
-        ExecutorService executorService = Executors.newFixedThreadPool(cores);
+        //work-stealing, so the repeats a test case splits into are spread over idle threads
+        ExecutorService executorService = Executors.newWorkStealingPool(cores);
         logger.log(Level.INFO, "Executor created with " + cores + " threads, " + timeout + "s timeout.");
 
-        testCases.entrySet().forEach(tc -> tc.setValue(executorService.submit(tc.getKey())));
+        //rows are written by a single thread as the cases complete
+        String traceDirectory = properties.getProperty("testcase.trace_dir", "");
+        if (!traceDirectory.isBlank()) {
+            try {
+                Path directory = Files.createDirectories(Paths.get(traceDirectory));
+                testCases.forEach(testCase -> testCase.setTraceDirectory(directory));
+                logger.log(Level.INFO, "Traces are recorded into " + directory.toAbsolutePath());
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Trace directory could not be created, traces are not recorded.");
+            }
+        }
+        //per algorithm timings and counters, watchable over JMX (see AlgorithmMetrics)
+        boolean metricsEnabled = Boolean.parseBoolean(properties.getProperty("testcase.metrics", "false"));
+        testCases.forEach(testCase -> testCase.setMetricsEnabled(metricsEnabled));
+        int testCaseCount = testCases.size();
+        //cases, repeats and ticks done, with the estimated completion, in the log and as a JMX MBean
+        CampaignProgress progress = new CampaignProgress(testCaseCount, testCases.stream().mapToLong(TestCase::getRepeats).sum());
+        testCases.forEach(testCase -> testCase.setProgress(progress));
+        progress.start(Main.getIntProperty(properties, "testcase.progress_interval", Main.TESTCASE_PROGRESS_INTERVAL),
+                Boolean.parseBoolean(properties.getProperty("testcase.progress_stdout", "false")));
+        CampaignPhaseEvent phaseEvent = beginPhase();
+        ResultWriter resultWriter = new ResultWriter(outputFile, executorService, progress);
+        testCases.forEach(resultWriter::submit);
+        testCases.clear();
+        Thread writerThread = new Thread(resultWriter, "ResultWriter");
+        writerThread.start();
         logger.log(Level.INFO, "Submitted cases to the executor.");
 
         executorService.shutdown();
@@ -69,62 +106,76 @@ public class TestManager {
             if (!executorService.awaitTermination(timeout, TimeUnit.SECONDS)) {
                 executorService.shutdownNow();
                 logger.log(Level.INFO, "Executor shutdownNow() called.");
+                executorService.awaitTermination(SHUTDOWN_GRACE, TimeUnit.SECONDS);
             }
         } catch (InterruptedException e) {
             executorService.shutdownNow();
         }
         logger.log(Level.INFO, "Executor done.");
+        endPhase(phaseEvent, "run", testCaseCount);
+
+        logger.log(Level.INFO, graphCache.toString());
+        //the rows of the cases still queued when the executor finished
+        phaseEvent = beginPhase();
+        resultWriter.executorDone();
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            logger.log(Level.SEVERE, "Interrupted while writing the results.");
+        }
+        endPhase(phaseEvent, "writeResults", testCaseCount);
+        progress.stop();
+    }
+
+    private static CampaignPhaseEvent beginPhase() {
+        CampaignPhaseEvent event = new CampaignPhaseEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Commits the JFR event of a phase, if a recording is enabled for it.
+     */
+    private static void endPhase(CampaignPhaseEvent event, String phase, int testCases) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.phase = phase;
+            event.testCases = testCases;
+            event.commit();
+        }
     }
 
     private void printResultsHeaders(String outputFile) throws IOException {
         BufferedWriter writer = new BufferedWriter(new FileWriter(outputFile));
-        writer.write("Testcase;Algorithm;Agents;GraphType;GraphSize;Nodes;AvgDegree;Edges;Repeats;allEdgeVisited;minSteps;maxSteps;avgSteps;deviation");
+        writer.write("Testcase;Algorithm;Agents;GraphType;GraphSize;Nodes;AvgDegree;Edges;Repeats;allEdgeVisited;minSteps;maxSteps;avgSteps;deviation;avgTotalMoves;avgWallClockMs;completedRepeats;p50Steps;p95Steps;p99Steps;status");
         writer.newLine();
         writer.flush();
         writer.close();
         logger.log(Level.INFO, "Results headers written into the output file.");
     }
 
-    private void printResults(String outputFile) {
-        int[] dummyResult = new int[5];
-
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(outputFile, true))) {
-            testCases.forEach((tc, f) -> {
-
-                try {
-                    int[] result;
-                    if (f.isDone()) {
-                        result = f.get();
-                    }
-                    else {
-                        result = dummyResult;
-                    }
-                    writer.write(tc + ";" + result[0] + ";" + result[1] + ";" + result[2] + ";" + result[3] + ";" + result[4]);
-                    writer.newLine();
-
-                } catch (InterruptedException | ExecutionException | IOException e) {
-                    logger.log(Level.SEVERE, "Error reading Future or writing Output.");
-                    e.printStackTrace();
-                }
-            });
-            writer.flush();
-            logger.log(Level.INFO, "Results written into the output file.");
-
-        } catch (IOException e) {
-            logger.log(Level.SEVERE, "FileWriter error on opening output file.");
-        }
-    }
-
     private void readTestCaseFile (String fileName) throws IOException {
         int minDegree = Main.getIntProperty(properties, "testcase.min_degree", Main.TESTCASE_MINDEGREE);
         int maxDegree = Main.getIntProperty(properties, "testcase.max_degree", Main.TESTCASE_MAXDEGREE);
+        ExecutionMode executionMode = Main.getExecutionModeProperty(properties, "testcase.execution_mode", Main.TESTCASE_EXECUTION_MODE);
+        RunBudget budget = new RunBudget(
+                Main.getIntProperty(properties, "testcase.case_timeout", Main.TESTCASE_CASE_TIMEOUT),
+                Main.getIntProperty(properties, "testcase.repeat_timeout", Main.TESTCASE_REPEAT_TIMEOUT),
+                Main.getIntProperty(properties, "testcase.repeat_max_steps", Main.TESTCASE_REPEAT_MAXSTEPS));
+        //same graphs for every algorithm, a new set of graphs for every run unless the seed is given
+        int graphSeed = Main.getIntProperty(properties, "testcase.graph_seed", new Random().nextInt());
+        //graph files of an earlier CorpusBuilder run with the same seed are loaded instead of generated
+        Path corpus = Paths.get(properties.getProperty("testcase.graph_corpus", Main.DEFAULT_GRAPH_CORPUS));
+        graphCache = new GraphCache(Main.getIntProperty(properties, "testcase.graph_cache_mb", Main.TESTCASE_GRAPH_CACHE_MB) * 1024L * 1024L,
+                graphSeed, Files.isDirectory(corpus) ? corpus : null);
+        logger.log(Level.INFO, "Graph seed: " + graphSeed);
         Stream<String> stream = Files.lines(Paths.get(fileName));
         stream.forEach((line) -> {
             if (line.isBlank() || line.charAt(0) == COMMENTLINE) {
                 return;
             }
             try {
-                parseInputLine(line, minDegree, maxDegree);
+                parseInputLine(line, minDegree, maxDegree, executionMode, budget);
                 logger.log(Level.INFO, "Test cases added: {0}", new Object[]{line});
             }
             catch (Exception ex) {
@@ -134,14 +185,21 @@ public class TestManager {
         stream.close();
     }
 
-    private void parseInputLine (String line, int minDegree, int maxDegree) throws IllegalArgumentException, InputMismatchException, NullPointerException {
+    private void parseInputLine (String line, int minDegree, int maxDegree, ExecutionMode executionMode, RunBudget budget) throws IllegalArgumentException, InputMismatchException, NullPointerException {
         Scanner sc = new Scanner (line);
 
-        GraphType graphType = GraphManager.getGraphType(sc.next());
+        String graphSource = sc.next();
+        if (graphSource.startsWith(GRAPHFILEPREFIX)) {
+            parseGraphFileLine(graphSource.substring(GRAPHFILEPREFIX.length()), sc, executionMode, budget);
+            return;
+        }
+        GraphType graphType = GraphManager.getGraphType(graphSource);
         //range: either a number x,x,1 or a range x,y,s
         int[] sizeRange = parseRange(sc.next());
         int[] degreeRange = parseRange(sc.next(), minDegree, Integer.min(maxDegree, sizeRange[1]-1));
-        Algorithm<?, ?> algorithm = selectAlgorithm(sc.next());
+        String algorithmCode = sc.next();
+        //fail on unknown codes before expanding the ranges
+        selectAlgorithm(algorithmCode);
         int[] agentRange = parseRange(sc.next());
         int repeats = sc.nextInt();
 
@@ -150,20 +208,42 @@ public class TestManager {
         for (int graphSize = sizeRange[0]; graphSize <= sizeRange[1]; graphSize += sizeRange[2]) {
             for (int agentNum = agentRange[0]; agentNum <= agentRange[1]; agentNum += agentRange[2]) {
                 for (int avgDegree = degreeRange[0]; avgDegree <= degreeRange[1]; avgDegree += degreeRange[2]) {
-                    Graph graph = GraphManager.getGraph(graphType, graphSize, avgDegree);
-                    testCases.put(new TestCase(graph, algorithm, agentNum, repeats), null);
+                    //algorithms hold the state of a run, every test case (and repeat) gets its own instance
+                    testCases.add(new TestCase(graphType, graphSize, avgDegree, () -> selectAlgorithm(algorithmCode),
+                            agentNum, repeats, executionMode, budget, graphCache));
                 }
             }
         }
     }
 
+    /**
+     * Reads the rest of a test case line with an imported graph: there is no size and degree, the graph is given.
+     * @param fileName Edge list or DGS file.
+     */
+    private void parseGraphFileLine (String fileName, Scanner sc, ExecutionMode executionMode, RunBudget budget) throws IllegalArgumentException, InputMismatchException, NoSuchElementException {
+        Path graphFile = Paths.get(fileName);
+        if (!Files.isReadable(graphFile)) {
+            throw new IllegalArgumentException("Graph file cannot be read: " + fileName);
+        }
+        String algorithmCode = sc.next();
+        selectAlgorithm(algorithmCode);
+        int[] agentRange = parseRange(sc.next());
+        int repeats = sc.nextInt();
+        sc.close();
+
+        for (int agentNum = agentRange[0]; agentNum <= agentRange[1]; agentNum += agentRange[2]) {
+            testCases.add(new TestCase(graphFile, () -> selectAlgorithm(algorithmCode), agentNum, repeats,
+                    executionMode, budget, graphCache));
+        }
+    }
+
     /**
      * Reads integer range information (min, max, step) from a String token.
      * @param token String input with integer parameters
      * @return A 3 long integer array.
      * @throws NumberFormatException If the token does not have the expected integer representations.
      */
-    private int[] parseRange(String token) throws NumberFormatException {
+    static int[] parseRange(String token) throws NumberFormatException {
         return parseRange(token, Integer.MIN_VALUE, Integer.MAX_VALUE);
     }
 
@@ -176,7 +256,7 @@ public class TestManager {
      * @throws NumberFormatException If the token does not have the expected integer representations.
      * @throws IllegalArgumentException If the value read does not fit between minBound and maxBound.
      */
-    private int[] parseRange (String token, int minBound, int maxBound) throws IllegalArgumentException {
+    static int[] parseRange (String token, int minBound, int maxBound) throws IllegalArgumentException {
 
         int[] result = new int[3];
         String RANGESEPARATOR = "-";
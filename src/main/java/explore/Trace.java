@@ -0,0 +1,234 @@
+package main.java.explore;
+
+import main.java.explore.util.IntList;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * A trace written by {@link TraceRecorder}, loaded for replay. The state after any tick (the node of every agent,
+ * and which edges have been traversed) is restored without running the algorithm: the positions are saved
+ * every KEYFRAME_TICKS ticks while loading, so a seek decodes at most that many ticks.
+ */
+public class Trace {
+    private static final int KEYFRAME_TICKS = 256;
+    private final byte[] data;
+    private int pos;
+
+    private final String algorithmName;
+    private final int[] offsets, edges, endpoints;
+    private final int[] startNodes;
+    private final String[] agentCodes;
+    private int tickCount;
+    //first tick after which an edge was traversed, Integer.MAX_VALUE if never
+    private final int[] firstVisit;
+    //the traversed edges in the order of their first visit
+    private int[] visitOrder;
+    //positions and trace offset at every KEYFRAME_TICKS-th tick
+    private int[][] keyframes;
+    private int[] keyframeOffsets;
+
+    /**
+     * Loads a trace file.
+     * @param file The trace file.
+     * @throws IOException If the file cannot be read or is not a trace of this version.
+     */
+    public Trace(Path file) throws IOException {
+        data = Files.readAllBytes(file);
+        try {
+            if (readVarint() != TraceRecorder.MAGIC || readVarint() != TraceRecorder.VERSION) {
+                throw new IOException("Not a trace file of version " + TraceRecorder.VERSION + ": " + file);
+            }
+            int nameLength = readVarint();
+            algorithmName = new String(data, pos, nameLength, StandardCharsets.UTF_8);
+            pos += nameLength;
+            int nodeCount = readVarint();
+            int edgeCount = readVarint();
+            offsets = new int[nodeCount + 1];
+            for (int n = 0; n < nodeCount; n++) {
+                offsets[n + 1] = offsets[n] + readVarint();
+            }
+            edges = new int[offsets[nodeCount]];
+            for (int i = 0; i < edges.length; i++) {
+                edges[i] = readVarint();
+            }
+            endpoints = new int[2 * edgeCount];
+            for (int i = 0; i < endpoints.length; i++) {
+                endpoints[i] = readVarint();
+            }
+            startNodes = new int[readVarint()];
+            agentCodes = new String[startNodes.length];
+            for (int i = 0; i < startNodes.length; i++) {
+                startNodes[i] = readVarint();
+                agentCodes[i] = "A" + readVarint();
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Truncated trace file: " + file);
+        }
+        firstVisit = new int[endpoints.length / 2];
+        Arrays.fill(firstVisit, Integer.MAX_VALUE);
+        index();
+    }
+
+    /**
+     * Decodes the whole trace once, saving the keyframes and the first visit of the edges.
+     * A last tick cut off by the end of the file is dropped.
+     */
+    private void index() {
+        int[] positions = startNodes.clone();
+        IntList visited = new IntList();
+        int keyframeCount = 0;
+        keyframes = new int[16][];
+        keyframeOffsets = new int[16];
+        int tick = 0;
+        while (true) {
+            if (tick % KEYFRAME_TICKS == 0) {
+                if (keyframeCount == keyframes.length) {
+                    keyframes = Arrays.copyOf(keyframes, keyframeCount * 2);
+                    keyframeOffsets = Arrays.copyOf(keyframeOffsets, keyframeCount * 2);
+                }
+                keyframes[keyframeCount] = positions.clone();
+                keyframeOffsets[keyframeCount++] = pos;
+            }
+            int tickStart = pos;
+            boolean complete;
+            try {
+                complete = decodeTick(positions, tick, visited);
+            } catch (ArrayIndexOutOfBoundsException e) {
+                complete = false;
+            }
+            if (!complete) {
+                pos = tickStart;
+                break;
+            }
+            tick++;
+        }
+        tickCount = tick;
+        visitOrder = visited.toArray();
+    }
+
+    /**
+     * Decodes the next tick.
+     * @param positions Positions before the tick, updated.
+     * @param tick Index of the tick, for the first visits. Negative if they are already known.
+     * @param visited The first visited edges are added to it, if the tick is not negative.
+     * @return False if nobody was running or the tick is incomplete.
+     */
+    private boolean decodeTick(int[] positions, int tick, IntList visited) {
+        boolean anyRunning = false;
+        for (int i = 0; i < positions.length; i++) {
+            if (positions[i] < 0) {
+                continue;
+            }
+            anyRunning = true;
+            if (pos >= data.length) {
+                return false;
+            }
+            int port = readVarint();
+            if (port == 0) {
+                positions[i] = ~positions[i];
+                continue;
+            }
+            int node = positions[i];
+            int edge = edges[offsets[node] + port - 1];
+            positions[i] = endpoints[2 * edge] == node ? endpoints[2 * edge + 1] : endpoints[2 * edge];
+            if (tick >= 0 && firstVisit[edge] == Integer.MAX_VALUE) {
+                firstVisit[edge] = tick + 1;
+                visited.add(edge);
+            }
+        }
+        return anyRunning;
+    }
+
+    /**
+     * Restores the positions of the agents after a tick.
+     * @param tick Number of ticks done, between 0 and getTickCount().
+     * @param positions Filled with the node of every agent, ~node for agents that have stopped.
+     */
+    public void positionsAt(int tick, int[] positions) {
+        tick = Math.max(0, Math.min(tick, tickCount));
+        int keyframe = tick / KEYFRAME_TICKS;
+        System.arraycopy(keyframes[keyframe], 0, positions, 0, positions.length);
+        pos = keyframeOffsets[keyframe];
+        for (int t = keyframe * KEYFRAME_TICKS; t < tick; t++) {
+            decodeTick(positions, -1, null);
+        }
+    }
+
+    /**
+     * Counts the edges traversed in the first ticks. These are the first ones of the visit order
+     * (see getVisitedEdge), so the edges changed between two ticks are the ones between their counts.
+     * @param tick Number of ticks done.
+     * @return Number of traversed edges.
+     */
+    public int getVisitedCount(int tick) {
+        int low = 0, high = visitOrder.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (firstVisit[visitOrder[mid]] <= tick) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param index Position in the order of the first visits.
+     * @return The index-th traversed edge.
+     */
+    public int getVisitedEdge(int index) {
+        return visitOrder[index];
+    }
+
+    public String getAlgorithmName() {
+        return algorithmName;
+    }
+
+    public int getTickCount() {
+        return tickCount;
+    }
+
+    public int getAgentCount() {
+        return startNodes.length;
+    }
+
+    /**
+     * @param agent Agent index.
+     * @return The code of the agent in the recorded run.
+     */
+    public String getAgentCode(int agent) {
+        return agentCodes[agent];
+    }
+
+    public int getNodeCount() {
+        return offsets.length - 1;
+    }
+
+    public int getEdgeCount() {
+        return endpoints.length / 2;
+    }
+
+    public int getSource(int edge) {
+        return endpoints[2 * edge];
+    }
+
+    public int getTarget(int edge) {
+        return endpoints[2 * edge + 1];
+    }
+
+    private int readVarint() {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = data[pos++];
+            value |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package main.java.explore;
+
+import main.java.explore.graph.CompactGraph;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+/**
+ * Records the moves of the agents of a run, tick by tick, into a compact binary trace that the Gui can replay
+ * (see {@link Trace}). Integers are written as unsigned varints.
+ * <pre>
+ * header: magic, version, algorithm name (length and UTF-8 bytes),
+ *         node count, edge count, degree of every node, incident edges of every node, endpoints of every edge,
+ *         agent count, start node and id of every agent
+ * ticks:  for every agent still running, in agent order: 0 if it stopped, or 1 + the position of the edge
+ *         it moved on amongst the edges of the node it left
+ * </pre>
+ * Moves are stored relative to the node of the agent, so most of them take a single byte.
+ * The trace ends when every agent has stopped, or where the run was cancelled.
+ */
+public class TraceRecorder implements Closeable {
+    static final int MAGIC = 0x4d415452;
+    static final int VERSION = 2;
+    public static final String EXTENSION = ".trace";
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private final OutputStream out;
+    //the recorded state: if an agent is still running
+    private final boolean[] running;
+
+    /**
+     * Creates the trace file and writes the header, with the start position of the agents.
+     * @param file The trace file.
+     * @param algorithmName Name of the algorithm, for the Gui.
+     * @param graph The graph of the run.
+     * @param agents The agents, before the first tick.
+     * @throws IOException If the file cannot be written.
+     */
+    public TraceRecorder(Path file, String algorithmName, CompactGraph graph, ArrayList<Agent> agents) throws IOException {
+        this.out = new BufferedOutputStream(Files.newOutputStream(file), BUFFER_BYTES);
+        this.running = new boolean[agents.size()];
+
+        writeVarint(MAGIC);
+        writeVarint(VERSION);
+        byte[] name = algorithmName.getBytes(StandardCharsets.UTF_8);
+        writeVarint(name.length);
+        out.write(name);
+        int nodeCount = graph.getNodeCount();
+        int edgeCount = graph.getEdgeCount();
+        writeVarint(nodeCount);
+        writeVarint(edgeCount);
+        for (int n = 0; n < nodeCount; n++) {
+            writeVarint(graph.getDegree(n));
+        }
+        for (int n = 0; n < nodeCount; n++) {
+            for (int i = 0; i < graph.getDegree(n); i++) {
+                writeVarint(graph.getEdge(n, i));
+            }
+        }
+        for (int e = 0; e < edgeCount; e++) {
+            writeVarint(graph.getSource(e));
+            writeVarint(graph.getTarget(e));
+        }
+        writeVarint(agents.size());
+        for (int i = 0; i < agents.size(); i++) {
+            running[i] = agents.get(i).isRunning();
+            writeVarint(agents.get(i).getCurrentNode());
+            writeVarint(agents.get(i).getId());
+        }
+    }
+
+    /**
+     * Records the moves of a tick. Called after the tick, when the agents are on their new nodes:
+     * the port of a move is the one the agent recorded when it moved (see Agent.getLastPort).
+     * @param agents The agents.
+     * @throws IOException If the file cannot be written.
+     */
+    public void recordTick(ArrayList<Agent> agents) throws IOException {
+        for (int i = 0; i < running.length; i++) {
+            if (!running[i]) {
+                continue;
+            }
+            Agent agent = agents.get(i);
+            if (!agent.isRunning()) {
+                running[i] = false;
+                out.write(0);
+            } else {
+                writeVarint(agent.getLastPort() + 1);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void writeVarint(int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+}
@@ -0,0 +1,139 @@
+package main.java.explore;
+
+import main.java.explore.graph.EdgeState;
+import org.graphstream.graph.Graph;
+import org.graphstream.graph.Node;
+import org.graphstream.graph.implementations.SingleGraph;
+import org.graphstream.ui.view.Viewer;
+
+import javax.swing.*;
+import java.awt.*;
+
+import static main.java.explore.algorithm.Algorithm.LABELID;
+
+/**
+ * Replays a recorded trace at any speed, with seeking. Only the moves are recorded: the viewer shows where the agents
+ * are and which edges have been traversed, not the memory of the algorithm.
+ */
+public class TraceViewer extends JFrame {
+    //timer period of the playback, in milliseconds
+    private static final int FRAME_MILLIS = 40;
+
+    private final Trace trace;
+    private final Graph graph = new SingleGraph("Trace");
+    private final int[] positions;
+    //what is rendered now: the positions and the number of traversed edges (see Trace.getVisitedCount)
+    private int[] shownPositions;
+    private int shownVisitedCount;
+    private int tick;
+    private double pendingTicks;
+
+    private final JSlider sldTick;
+    private final JSpinner spnSpeed;
+    private final JLabel lblTick = new JLabel();
+    private final Timer timer = new Timer(FRAME_MILLIS, e -> advance());
+
+    public TraceViewer(Trace trace, String title) {
+        this.trace = trace;
+        this.positions = new int[trace.getAgentCount()];
+        this.shownPositions = new int[0];
+        this.setTitle(title + " - " + trace.getAlgorithmName() + ", " + trace.getAgentCount() + " agents");
+        this.setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+        this.setSize(900, 800);
+        this.setLocationRelativeTo(null);
+
+        for (int n = 0; n < trace.getNodeCount(); n++) {
+            graph.addNode(Integer.toString(n));
+        }
+        for (int e = 0; e < trace.getEdgeCount(); e++) {
+            graph.addEdge(Integer.toString(e), trace.getSource(e), trace.getTarget(e));
+            graph.getEdge(e).setAttribute("ui.style", EdgeState.UNVISITED.style);
+        }
+        Viewer viewer = new Viewer(graph, Viewer.ThreadingModel.GRAPH_IN_GUI_THREAD);
+        viewer.enableAutoLayout();
+
+        JButton btnPlay = new JButton("Play / pause");
+        btnPlay.addActionListener(e -> {
+            if (timer.isRunning()) {
+                timer.stop();
+            } else {
+                if (tick == trace.getTickCount()) {
+                    show(0);
+                }
+                pendingTicks = 0;
+                timer.start();
+            }
+        });
+        sldTick = new JSlider(0, trace.getTickCount(), 0);
+        sldTick.addChangeListener(e -> {
+            if (sldTick.getValue() != tick) {
+                show(sldTick.getValue());
+            }
+        });
+        //ticks per second
+        spnSpeed = new JSpinner(new SpinnerNumberModel(5, 1, 100_000, 1));
+
+        JPanel controlPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        controlPanel.add(btnPlay);
+        controlPanel.add(new JLabel("Steps per second:"));
+        controlPanel.add(spnSpeed);
+        controlPanel.add(sldTick);
+        controlPanel.add(lblTick);
+        this.add(controlPanel, BorderLayout.NORTH);
+        this.add(viewer.addDefaultView(false), BorderLayout.CENTER);
+        this.addWindowListener(new java.awt.event.WindowAdapter() {
+            public void windowClosed(java.awt.event.WindowEvent e) {
+                timer.stop();
+            }
+        });
+
+        show(0);
+    }
+
+    private void advance() {
+        pendingTicks += ((Integer) spnSpeed.getValue()) * FRAME_MILLIS / 1000.0;
+        int ticks = (int) pendingTicks;
+        if (ticks == 0) {
+            return;
+        }
+        pendingTicks -= ticks;
+        show(Math.min(tick + ticks, trace.getTickCount()));
+        if (tick == trace.getTickCount()) {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Renders the state after a tick, changing only the nodes and edges that differ from the rendered state.
+     * @param tick Number of ticks done.
+     */
+    private void show(int tick) {
+        this.tick = tick;
+        trace.positionsAt(tick, positions);
+
+        for (int node : shownPositions) {
+            graph.getNode(node < 0 ? ~node : node).removeAttribute(LABELID);
+        }
+        for (int i = 0; i < positions.length; i++) {
+            Node node = graph.getNode(positions[i] < 0 ? ~positions[i] : positions[i]);
+            String label = node.hasAttribute(LABELID) ? node.getAttribute(LABELID) + " " : "";
+            node.setAttribute(LABELID, label + trace.getAgentCode(i) + (positions[i] < 0 ? "." : ""));
+        }
+        shownPositions = positions.clone();
+
+        //only the edges first traversed between the rendered and the new tick change
+        int visitedCount = trace.getVisitedCount(tick);
+        for (int i = shownVisitedCount; i < visitedCount; i++) {
+            graph.getEdge(trace.getVisitedEdge(i)).setAttribute("ui.style", EdgeState.VISITED.style);
+        }
+        for (int i = visitedCount; i < shownVisitedCount; i++) {
+            graph.getEdge(trace.getVisitedEdge(i)).setAttribute("ui.style", EdgeState.UNVISITED.style);
+        }
+        shownVisitedCount = visitedCount;
+
+        lblTick.setText(Gui.STEP_COUNT_LABEL + tick + " / " + trace.getTickCount());
+        if (sldTick.getValue() != tick) {
+            sldTick.setValue(tick);
+        }
+    }
+}
@@ -1,190 +1,208 @@
 package main.java.explore.algorithm;
 
 import main.java.explore.Agent;
+import main.java.explore.graph.CompactGraph;
 import main.java.explore.graph.EdgeState;
-import main.java.explore.graph.GraphManager;
-import org.graphstream.graph.Edge;
-import org.graphstream.graph.Graph;
-import org.graphstream.graph.Node;
+import main.java.explore.graph.EdgeStore;
 
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedHashSet;
 
 /**
- * Inteface declaring expected methods for any exploration algorithms.
+ * Base class declaring expected methods for any exploration algorithms.
+ * Algorithms run on the index based CompactGraph; the GraphStream graph is only used for rendering (see RenderQueue).
+ * An algorithm instance holds the state of one run, so it must not be shared between test cases.
+ * Implementations guard their shared storage per node (or with atomic updates), there is no lock shared between runs.
  */
-public interface Algorithm<Memory, Storage>  {
+public abstract class Algorithm<Memory, Storage extends NodeStorage> {
 
-    Object STORELOCK = new Object();
-    String LABELID = "ui.label";
-    String STORAGEID = "storage";
-    String EDGESTATEID = "edgestate";
-    int DEFAULT_START_INDEX = 0;
+    public static final String LABELID = "ui.label";
+    public static final String EDGESTATEID = "edgestate";
+    public static final int DEFAULT_START_INDEX = 0;
+    public static final int NO_EDGE = -1;
 
-    /**
-     * Initializes the graph and the agents.
-     * @param graph The graph.
-     * @param agents The agents.
-     * @param agentNum The number of agents to have.
-     */
-    void init(Graph graph, ArrayList<Agent> agents, int agentNum)  throws Exception;
+    protected CompactGraph graph;
+    protected EdgeStore edges;
+    protected Storage storage;
+    protected ArrayList<Agent> agents;
+    private int[] startNodeIndexes;
+    //agents of the previous runs, reused with their memory
+    private final ArrayList<Agent> agentPool = new ArrayList<>();
 
     /**
-     * Initializes the graph and the agents with the default starting position.
+     * Initializes the graph and the agents.
      * @param graph The graph.
      * @param agents The agents.
      * @param agentNum The number of agents to have.
-     * @param mClass Class of the memory type.
-     * @param sClass Class of the storage type.
-     * @throws Exception Exception is thrown if the memory or te storage instantiation fails (e.g. no default constructor).
      */
-    default void init(Graph graph, ArrayList<Agent> agents, int agentNum, Class<Memory> mClass, Class<Storage> sClass) throws Exception {
-        init(graph, agents, agentNum, mClass, sClass, new int[]{DEFAULT_START_INDEX});
-    }
+    public abstract void init(CompactGraph graph, ArrayList<Agent> agents, int agentNum);
 
     /**
      * Initializes the graph and the agents.
      * @param graph The graph.
      * @param agents The agents.
      * @param agentNum The number of agents to have.
-     * @param mClass Class of the memory type.
-     * @param sClass Class of the storage type.
      * @param startNodeIndexes Indexes of the nodes where agents should placed at.
-     * @throws Exception Exception is thrown if the memory or te storage instantiation fails (e.g. no default constructor).
      */
-    default void init(Graph graph, ArrayList<Agent> agents, int agentNum, Class<Memory> mClass, Class<Storage> sClass, int[] startNodeIndexes) throws Exception {
+    protected void init(CompactGraph graph, ArrayList<Agent> agents, int agentNum, int[] startNodeIndexes) {
 
         assert startNodeIndexes != null && startNodeIndexes.length > 0;
 
+        this.graph = graph;
+        this.startNodeIndexes = startNodeIndexes;
+        this.agents = agents;
         agents.clear();
-        //creates storage per Nodes
-        for (Node n : graph.getNodeSet()) {
-            n.setAttribute(STORAGEID, sClass.getDeclaredConstructor().newInstance());
+        //creates storage for all nodes, or clears the one of the previous run
+        if (storage == null || !storage.reset(graph.getNodeCount())) {
+            storage = createStorage(graph.getNodeCount());
         }
 
-        //(re)set start nodes and edges style and labels
-        GraphManager.resetGraph(graph, startNodeIndexes);
+        //(re)set edges
+        if (edges == null) {
+            edges = new EdgeStore(graph.getEdgeCount());
+        } else {
+            edges.reset(graph.getEdgeCount());
+        }
 
-        //create agents
+        //create agents, or take them from the previous runs
         for (int i = 0; i < agentNum; i++) {
-            Node startNode = graph.getNode(startNodeIndexes[i >= startNodeIndexes.length ? 0 : i]);
-            Agent agent = new Agent(startNode);
-            agent.setMemory(mClass.getDeclaredConstructor().newInstance());
+            int startNode = startNodeIndexes[i >= startNodeIndexes.length ? 0 : i];
+            Agent agent;
+            if (i < agentPool.size()) {
+                agent = agentPool.get(i);
+                agent.reset(startNode);
+                agent.setMemory(resetMemory(memoryOf(agent)));
+            } else {
+                agent = new Agent(i, startNode);
+                agent.setMemory(createMemory());
+                agentPool.add(agent);
+            }
             agents.add(agent);
-            evaluateOnArrival(agent, null);
+            evaluateOnArrival(agent, NO_EDGE);
         }
     }
 
+    /**
+     * Creates the node storage of a run.
+     * @param nodeCount Number of nodes in the graph.
+     * @return The storage.
+     */
+    protected abstract Storage createStorage(int nodeCount);
+
+    /**
+     * Creates the memory of an agent.
+     * @return The memory.
+     */
+    protected abstract Memory createMemory();
+
+    /**
+     * Clears the memory of a pooled agent for a new run. By default a new memory is created.
+     * @param memory The memory of the previous run.
+     * @return The memory for the new run.
+     */
+    protected Memory resetMemory(Memory memory) {
+        return createMemory();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Memory memoryOf(Agent agent) {
+        return (Memory) agent.getMemory();
+    }
+
     /**
      * Evaluates situation for an agent on a new node.
      * This method is intended to be called right after an agent moves.
      * @param agent The agent.
-     * @param fromEdge The edge the agent is coming from.
+     * @param fromEdge The edge index the agent is coming from, or NO_EDGE.
      */
-    void evaluateOnArrival(Agent agent, Edge fromEdge);
+    public abstract void evaluateOnArrival(Agent agent, int fromEdge);
 
     /**
      * Selects an edge for an agent to move on.
      * This method should be called after every agent made their move and evaluation.
      * @param agent The agent.
-     * @return The edge the agent should move on.
+     * @return The edge index the agent should move on, or NO_EDGE.
      */
-    Edge selectNextStep(Agent agent);
+    public abstract int selectNextStep(Agent agent);
 
     /**
      * This method tells if an agent is finished in the current algorithm implementation.
-     * @param graph The graph.
+     * @param agents The agents.
      * @param agent The agent.
      * @return True or false.
      */
-    boolean agentStops(Graph graph, ArrayList<Agent> agents, Agent agent);
+    public abstract boolean agentStops(ArrayList<Agent> agents, Agent agent);
 
     /**
-     * Returns the algorithm's unique string id.
-     * @return Short string id.
+     * Returns the territory code of an agent, used by the distributed DFS variants to mark nodes and edges.
+     * Codes are positive, so 0 (NO_LABEL) can mark unexplored nodes and edges.
+     * @param agent The agent.
+     * @return The territory code.
      */
-    default String getName() {
-        return this.getClass().getSimpleName();
+    protected static int territoryOf(Agent agent) {
+        return agent.getIndex() + 1;
     }
 
     /**
-     * This method sets initial labels on the graph for graphical runs.
-     * @param graph The graph.
+     * Tells if the phases of a tick can be run in parallel for agents touching different nodes and edges.
+     * This requires agentStops and selectNextStep to use only the agent, its current node and the states of
+     * its incident edges, and evaluateOnArrival to use only the agent, its new node and the edge it came on.
+     * Shared counters are allowed if they are updated atomically.
+     * @return True if the algorithm can be stepped in parallel.
      */
-    default void createLabels(Graph graph) {
-        for (Node node : graph.getNodeSet()) {
-            createLabel(node);
-        }
-    }
-
-    default void createLabel (Node node) {
-        LinkedHashSet<String> labels = new LinkedHashSet<>();
-        labels.add(node.getId());
-        node.setAttribute(LABELID, labels);
+    public boolean supportsParallelTick() {
+        return false;
     }
 
     /**
-     * This method updates labels on the graph for graphical runs.
-     * @param agents The agent list.
+     * Returns the algorithm's unique string id.
+     * @return Short string id.
      */
-    default void updateLabels(Graph graph, ArrayList<Agent> agents) {
-        //TODO: fix this: sometimes agents get to the end
-        //get nearby nodes
-        HashSet<Node> affectedNodes = new HashSet<>();
-        for (Agent agent: agents) {
-            affectedNodes.add(agent.getCurrentNode());
-            Iterator<Node> it = agent.getCurrentNode().getNeighborNodeIterator();
-            while (it.hasNext()) {
-                affectedNodes.add(it.next());
-            }
-        }
+    public String getName() {
+        return this.getClass().getSimpleName();
+    }
 
-        //clear labels
-        Iterator<Node> it = affectedNodes.iterator();
-        while (it.hasNext()) {
-            createLabel(it.next());
-        }
+    public CompactGraph getGraph() {
+        return graph;
+    }
 
-        //add agents
-        for (Agent agent: agents) {
-            addLabel(agent.getCurrentNode(), agent.toString());
-        }
+    public int[] getStartNodeIndexes() {
+        return startNodeIndexes;
+    }
 
-        //add storage strings
-        it = affectedNodes.iterator();
-        while (it.hasNext()) {
-            Node node = it.next();
-            String nodeStoreSting = node.getAttribute(STORAGEID).toString();
-            addLabel(node, nodeStoreSting);
-        }
+    public EdgeStore getEdgeStore() {
+        return edges;
+    }
 
-        //add styles to edges
-        Iterator<Edge> edgeIt = graph.getEdgeIterator();
-        boolean isDDFS = this.getClass() == DistributedDFS.class || this.getClass() == ExtendedDDFS.class;
-        while (edgeIt.hasNext()) {
-            Edge edge = edgeIt.next();
-            //set visited state style
-            if (edge.hasAttribute(EDGESTATEID)) {
-                EdgeState state = edge.getAttribute(EDGESTATEID);
-                //in ddfs or eddfs we mark visited edges with different colors
-                if (state == EdgeState.VISITED && isDDFS) {
-                    int agentId = (int)edge.getAttribute(LABELID) % agents.size();
-                    edge.setAttribute("ui.style", DistributedDFS.EDGESTYLES[agentId]);
-                }
-                else {
-                    edge.setAttribute("ui.style", state.style);
-                }
-            }
+    /**
+     * Tells if every edge of the graph has been used by the agents.
+     * @return True if there is no unvisited edge left.
+     */
+    public boolean isExplored() {
+        return edges.count(EdgeState.UNVISITED) == 0;
+    }
 
-        }
+    /**
+     * Returns the storage of a node as text, for the Gui labels.
+     * @param node Node index.
+     * @return Label text.
+     */
+    public String getNodeLabel(int node) {
+        return storage.getLabel(node);
     }
 
-    default void addLabel(Node node, String label) {
-        LinkedHashSet<String> labels = node.getAttribute(LABELID);
-        labels.add(label);
-        node.setAttribute(LABELID, labels);
+    /**
+     * Returns the style of an edge in its current state, for the Gui.
+     * @param edge Edge index.
+     * @return GraphStream style.
+     */
+    public String getEdgeStyle(int edge) {
+        //in ddfs or eddfs we mark visited edges with different colors
+        boolean isDDFS = this.getClass() == DistributedDFS.class || this.getClass() == ExtendedDDFS.class;
+        EdgeState state = edges.getState(edge);
+        if (state == EdgeState.VISITED && isDDFS) {
+            return DistributedDFS.EDGESTYLES[edges.getLabel(edge) % agents.size()];
+        }
+        return state.style;
     }
 
 }
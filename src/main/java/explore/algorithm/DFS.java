@@ -1,151 +1,429 @@
 package main.java.explore.algorithm;
 
-import lombok.Data;
 import main.java.explore.Agent;
+import main.java.explore.graph.CompactGraph;
 import main.java.explore.graph.EdgeState;
-import org.graphstream.graph.Edge;
-import org.graphstream.graph.Graph;
+import main.java.explore.util.LongList;
 
-import java.util.*;
-import java.util.stream.Collectors;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.StringJoiner;
 
 /**
  * This algorithm uses no agent memory, but storage on each node.
  */
-public class DFS implements Algorithm<DFS.MaDfsMemory, DFS.MaDfsStorage> {
+public class DFS extends Algorithm<DFS.MaDfsMemory, DFS.MaDfsStorage> {
+
+    //position of a visit that does not exist
+    private static final int NO_VISIT = -1;
+
+    @Override
+    public void init(CompactGraph graph, ArrayList<Agent> agents, int agentNum) {
+        //the packed visit log has a fixed number of bits for agent indexes and edge slots
+        if (agentNum > MaDfsVisit.MAX_AGENTS) {
+            throw new IllegalArgumentException("Too many agents for DFS: " + agentNum);
+        }
+        for (int n = 0; n < graph.getNodeCount(); n++) {
+            if (graph.getDegree(n) > MaDfsVisit.MAX_DEGREE) {
+                throw new IllegalArgumentException("Node degree too high for DFS: " + graph.getDegree(n));
+            }
+        }
+        super.init(graph, agents, agentNum, new int[]{DEFAULT_START_INDEX});
+    }
 
     @Override
-    public void init(Graph graph, ArrayList<Agent> agents, int agentNum) throws Exception {
-        Algorithm.super.init(graph, agents, agentNum, MaDfsMemory.class, MaDfsStorage.class);
+    protected MaDfsStorage createStorage(int nodeCount) {
+        return new MaDfsStorage(nodeCount);
     }
 
     @Override
-    public void evaluateOnArrival(Agent agent, Edge fromEdge) {
+    protected MaDfsMemory createMemory() {
+        return new MaDfsMemory();
+    }
+
+    @Override
+    public void evaluateOnArrival(Agent agent, int fromEdge) {
+        int node = agent.getCurrentNode();
         //get storage and memory
-        MaDfsStorage store = agent.getCurrentNode().getAttribute(STORAGEID);
+        MaDfsVisits store = storage.get(node);
+
+        synchronized (store) {
+            arrive(store, agent, node, fromEdge);
+        }
+    }
 
+    private void arrive(MaDfsVisits store, Agent agent, int node, int fromEdge) {
         //check if first visit
-        boolean firsVisit = store.stream().noneMatch(v -> v.agent == agent);
+        boolean firsVisit = !store.hasVisited(agent.getIndex());
 
         //record this visit
-        EdgeState prevState = fromEdge == null ? EdgeState.UNVISITED : (EdgeState) fromEdge.getAttribute(EDGESTATEID);
-        synchronized (STORELOCK) {
-            store.add(new MaDfsVisit(agent, fromEdge, firsVisit, prevState));
-        }
+        EdgeState prevState = fromEdge == NO_EDGE ? EdgeState.UNVISITED : edges.getState(fromEdge);
+        int fromSlot = fromEdge == NO_EDGE ? NO_EDGE : graph.indexOfEdge(node, fromEdge);
+        store.add(agent.getIndex(), fromSlot, firsVisit, prevState);
 
-        //mark the fromEdge as used
-        if (fromEdge != null && fromEdge.getAttribute(EDGESTATEID) != EdgeState.FINISHED) {
-            EdgeState.VISITED.setEdge(fromEdge);
+        //mark the fromEdge as used, unless it is finished already
+        //(the edge is shared with the node on its other end, which is guarded by a different lock)
+        if (fromEdge != NO_EDGE) {
+            edges.compareAndSetState(fromEdge, EdgeState.UNVISITED, EdgeState.VISITED);
         }
 
-        //if the agent has been here before (->fromEdge cannot be null)
-        if (!firsVisit) EdgeState.FINISHED.setEdge(fromEdge);
+        //if the agent has been here before (->fromEdge cannot be NO_EDGE)
+        if (!firsVisit) edges.setState(fromEdge, EdgeState.FINISHED);
     }
 
     @Override
-    public Edge selectNextStep(Agent agent) {
+    public int selectNextStep(Agent agent) {
+        int node = agent.getCurrentNode();
         //get storage
-        MaDfsStorage store = agent.getCurrentNode().getAttribute(STORAGEID);
+        MaDfsVisits store = storage.get(node);
+
+        synchronized (store) {
+            return selectNextStep(store, agent, node);
+        }
+    }
 
+    private int selectNextStep(MaDfsVisits store, Agent agent, int node) {
         //previous visit
-        Optional<MaDfsVisit> lastVisit = store.stream()
-                .filter(v -> v.agent == agent && v.isFinished())
-                .reduce((first, second) -> second);
+        int lastVisit = store.getLastFinished(agent.getIndex());
 
         //current one
-        //noinspection OptionalGetWithoutIsPresent there must be a currentVisit at this point
-        MaDfsVisit currentVisit = store.stream()
-                .filter(v -> v.agent == agent)
-                .reduce((first, second) -> second)
-                .get();
+        int currentVisit = store.getLatest(agent.getIndex());
 
-        Edge fromEdge = currentVisit.getFrom();
+        int fromSlot = MaDfsVisit.getFromSlot(store.get(currentVisit));
+        int fromEdge = toEdge(node, fromSlot);
 
         //if the agent has been here before
         //but now it came on a different edge then the one it used to left v the last time, it should go back
-        if (lastVisit.isPresent() && (lastVisit.get().getTo() != fromEdge)) {
-            currentVisit.setTo(fromEdge);
+        if (lastVisit != NO_VISIT && MaDfsVisit.getToSlot(store.get(lastVisit)) != fromSlot) {
+            store.finish(currentVisit, fromSlot);
             return fromEdge;
         }
 
-        //original entry edges for all agents
-        Map<Agent, Edge> originalEdges = store.stream()
-                .filter(v -> v.original && v.from != null)
-                .collect(Collectors.toMap(MaDfsVisit::getAgent, MaDfsVisit::getFrom));
-
         //original entry edge for this agent
-        Edge originalEdge = originalEdges.get(agent);
+        int originalSlot = MaDfsVisit.getFromSlot(store.get(store.getOriginal(agent.getIndex())));
 
         //if there's an edge that is not finished and not original entry to any agents
         //prefer the least used edge (by all agents)
-        Optional<Edge> to = agent.getCurrentNode().getEdgeSet().stream()
-                .filter(e -> e.getAttribute(EDGESTATEID) != EdgeState.FINISHED && !originalEdges.containsValue(e))
-                .min(Comparator.comparing(e -> store.stream().filter(v -> v.getTo() != null && v.getTo().equals(e)).count()));
+        int toSlot = NO_EDGE;
+        int toUsage = Integer.MAX_VALUE;
+        for (int i = 0; i < graph.getDegree(node); i++) {
+            if (!edges.hasState(graph.getEdge(node, i), EdgeState.FINISHED) && !store.isOriginalEntry(i)) {
+                int usage = store.getDepartures(i);
+                if (usage < toUsage) {
+                    toSlot = i;
+                    toUsage = usage;
+                }
+            }
+        }
 
-        if (to.isPresent()){
-            currentVisit.setTo(to.get());
-            return to.get();
+        if (toSlot != NO_EDGE){
+            store.finish(currentVisit, toSlot);
+            return graph.getEdge(node, toSlot);
         }
 
         //otherwise - no unused edge, go back, using the original entry
-        if (originalEdge != null){
-            currentVisit.setTo(originalEdge);
-            return originalEdge;
+        if (originalSlot != NO_EDGE){
+            store.finish(currentVisit, originalSlot);
+            return graph.getEdge(node, originalSlot);
         } else {
             //this can not happen
-            currentVisit.setTo(fromEdge);
+            store.finish(currentVisit, fromSlot);
             return fromEdge;
         }
     }
 
     @Override
-    public boolean agentStops(Graph graph, ArrayList<Agent> agents, Agent agent) {
+    public boolean supportsParallelTick() {
+        return true;
+    }
+
+    @Override
+    public boolean agentStops(ArrayList<Agent> agents, Agent agent) {
+        int node = agent.getCurrentNode();
         //get storage and memory
-        MaDfsStorage store = agent.getCurrentNode().getAttribute(STORAGEID);
+        MaDfsVisits store = storage.get(node);
 
-        boolean onStartNode = store.stream()
-                .anyMatch(v -> v.original && v.agent == agent && v.from == null);
+        boolean onStartNode;
+        synchronized (store) {
+            int originalVisit = store.getOriginal(agent.getIndex());
+            onStartNode = originalVisit != NO_VISIT && MaDfsVisit.getFromSlot(store.get(originalVisit)) == NO_EDGE;
+        }
 
-        boolean allEdgesDone = agent.getCurrentNode().getEdgeSet()
-                .stream().allMatch(e -> e.getAttribute(EDGESTATEID) == EdgeState.FINISHED);
+        boolean allEdgesDone = true;
+        for (int i = 0; i < graph.getDegree(node) && allEdgesDone; i++) {
+            allEdgesDone = edges.hasState(graph.getEdge(node, i), EdgeState.FINISHED);
+        }
 
         return allEdgesDone && onStartNode;
     }
 
-    public static class MaDfsMemory {
+    private int toEdge(int node, int slot) {
+        return slot == NO_EDGE ? NO_EDGE : graph.getEdge(node, slot);
     }
 
-    public static class MaDfsStorage extends LinkedList<MaDfsVisit> {
+    public static class MaDfsMemory {
     }
 
     /**
-     * Subclass representing a visit on a Node by an Agent in the multiagent DFS algorithm.
+     * Visit logs of all nodes. Every node is visited during an exploration, so the logs are created upfront.
+     * A node's log is also its lock: it must only be accessed while holding its monitor.
+     * The logs are kept for the next runs: a reset starts a new epoch, and a log of an earlier epoch
+     * is cleared when its node is first accessed.
      */
-    @Data
-    public static class MaDfsVisit {
-        public final Agent agent;
-        public final Edge from;
-        public final boolean original;
-        private Edge to;
-        private final EdgeState fromEdgePrevState;
+    public class MaDfsStorage implements NodeStorage {
+        private final MaDfsVisits[] visits;
+        private int epoch;
 
-        public MaDfsVisit(Agent agent, Edge from, boolean original, EdgeState state){
-            this.agent = agent;
-            this.from = from;
-            this.original = original;
-            this.fromEdgePrevState = state;
+        public MaDfsStorage(int nodeCount) {
+            visits = new MaDfsVisits[nodeCount];
+            for (int n = 0; n < nodeCount; n++) {
+                visits[n] = new MaDfsVisits(graph.getDegree(n));
+            }
         }
 
-        public boolean isFinished(){
-            return to != null;
+        public MaDfsVisits get(int node) {
+            MaDfsVisits store = visits[node];
+            //the epoch only changes between runs, the log is used under its lock after this
+            if (store.epoch != epoch) {
+                synchronized (store) {
+                    if (store.epoch != epoch) {
+                        store.clear(graph.getDegree(node), epoch);
+                    }
+                }
+            }
+            return store;
+        }
+
+        @Override
+        public String getLabel(int node) {
+            StringJoiner label = new StringJoiner(", ", "[", "]");
+            MaDfsVisits store = get(node);
+            synchronized (store) {
+                for (int i = 0; i < store.size(); i++) {
+                    label.add(MaDfsVisit.toString(store.get(i), graph, node, agents));
+                }
+            }
+            return label.toString();
         }
 
         @Override
-        public String toString () {
-            String label = this.agent.getCode() + ":";
-            label += from == null ? "null" : from.getId();
+        public boolean reset(int nodeCount) {
+            if (nodeCount > visits.length) {
+                return false;
+            }
+            epoch++;
+            return true;
+        }
+    }
+
+    /**
+     * Visit log of a node. Visits are packed into longs (see MaDfsVisit) and referred to by their position in the log.
+     * The log is indexed for the lookups of selectNextStep: the latest, the last finished and the original
+     * visit of every agent, and the number of departures on every incident edge.
+     * Incident edges are referred to by their position (slot) amongst the node's edges.
+     */
+    public static class MaDfsVisits {
+        private final LongList log = new LongList(4);
+        private int[] departures;
+        private boolean[] originalEntries;
+        //run of the storage the log belongs to
+        private int epoch;
+
+        //open addressing table of the visiting agents: agent index + 1 (0 is free) -> visit positions
+        private int[] agentKeys = new int[4];
+        private int[] latest = new int[4];
+        private int[] lastFinished = new int[4];
+        private int[] original = new int[4];
+        private int agentCount;
+
+        public MaDfsVisits(int degree) {
+            departures = new int[degree];
+            originalEntries = new boolean[degree];
+        }
+
+        /**
+         * Empties the log for a new run, keeping its arrays if they are large enough.
+         * @param degree Degree of the node in the new run's graph.
+         * @param epoch Epoch of the new run.
+         */
+        void clear(int degree, int epoch) {
+            log.clear();
+            if (degree > departures.length) {
+                departures = new int[degree];
+                originalEntries = new boolean[degree];
+            } else {
+                Arrays.fill(departures, 0, degree, 0);
+                Arrays.fill(originalEntries, 0, degree, false);
+            }
+            Arrays.fill(agentKeys, 0);
+            agentCount = 0;
+            this.epoch = epoch;
+        }
+
+        /**
+         * Records a new visit.
+         * @param agent The agent index.
+         * @param fromSlot Position of the entry edge amongst the node's edges, or NO_EDGE.
+         * @param isOriginal True if this is the agent's first visit on the node.
+         * @param fromEdgePrevState State of the entry edge before the visit.
+         */
+        public void add(int agent, int fromSlot, boolean isOriginal, EdgeState fromEdgePrevState) {
+            int position = log.size();
+            log.add(MaDfsVisit.pack(agent, fromSlot, isOriginal, fromEdgePrevState));
+            int i = lookup(agent);
+            if (agentKeys[i] == 0) {
+                agentKeys[i] = agent + 1;
+                lastFinished[i] = NO_VISIT;
+                original[i] = NO_VISIT;
+                agentCount++;
+            }
+            latest[i] = position;
+            if (isOriginal) {
+                original[i] = position;
+                if (fromSlot != NO_EDGE) {
+                    originalEntries[fromSlot] = true;
+                }
+            }
+            if (2 * agentCount > agentKeys.length) {
+                rehash();
+            }
+        }
+
+        /**
+         * Sets the edge a visit is left on.
+         * @param position The visit's position in the log.
+         * @param toSlot Position of the edge amongst the node's edges.
+         */
+        public void finish(int position, int toSlot) {
+            long visit = log.get(position);
+            log.set(position, MaDfsVisit.withToSlot(visit, toSlot));
+            if (toSlot != NO_EDGE) {
+                departures[toSlot]++;
+                lastFinished[lookup(MaDfsVisit.getAgent(visit))] = position;
+            }
+        }
+
+        public long get(int position) {
+            return log.get(position);
+        }
+
+        public int size() {
+            return log.size();
+        }
+
+        public boolean hasVisited(int agent) {
+            return agentKeys[lookup(agent)] != 0;
+        }
+
+        public int getLatest(int agent) {
+            return latest[lookup(agent)];
+        }
+
+        public int getLastFinished(int agent) {
+            return lastFinished[lookup(agent)];
+        }
+
+        public int getOriginal(int agent) {
+            int i = lookup(agent);
+            return agentKeys[i] == 0 ? NO_VISIT : original[i];
+        }
+
+        public boolean isOriginalEntry(int slot) {
+            return originalEntries[slot];
+        }
+
+        public int getDepartures(int slot) {
+            return departures[slot];
+        }
+
+        //returns the table position of the agent, or the free position where it should be inserted
+        private int lookup(int agent) {
+            int mask = agentKeys.length - 1;
+            int i = agent & mask;
+            while (agentKeys[i] != 0 && agentKeys[i] != agent + 1) {
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+
+        private void rehash() {
+            int[] oldKeys = agentKeys, oldLatest = latest, oldLastFinished = lastFinished, oldOriginal = original;
+            agentKeys = new int[oldKeys.length * 2];
+            latest = new int[agentKeys.length];
+            lastFinished = new int[agentKeys.length];
+            original = new int[agentKeys.length];
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] != 0) {
+                    int i = lookup(oldKeys[j] - 1);
+                    agentKeys[i] = oldKeys[j];
+                    latest[i] = oldLatest[j];
+                    lastFinished[i] = oldLastFinished[j];
+                    original[i] = oldOriginal[j];
+                }
+            }
+        }
+    }
+
+    /**
+     * Packed representation of a visit on a Node by an Agent in the multiagent DFS algorithm.
+     * Bits 0-20: entry slot + 1, bits 21-41: exit slot + 1 (0 means NO_EDGE), bits 42-60: agent index,
+     * bit 61: original visit flag, bits 62-63: state of the entry edge before the visit.
+     */
+    public static final class MaDfsVisit {
+        private static final int SLOT_BITS = 21, AGENT_BITS = 19;
+        private static final long SLOT_MASK = (1L << SLOT_BITS) - 1, AGENT_MASK = (1L << AGENT_BITS) - 1;
+        private static final int TO_SHIFT = SLOT_BITS, AGENT_SHIFT = 2 * SLOT_BITS;
+        private static final int ORIGINAL_SHIFT = AGENT_SHIFT + AGENT_BITS, STATE_SHIFT = ORIGINAL_SHIFT + 1;
+        public static final int MAX_DEGREE = (int) SLOT_MASK - 1;
+        public static final int MAX_AGENTS = (int) AGENT_MASK + 1;
+
+        private MaDfsVisit() {
+        }
+
+        public static long pack(int agent, int fromSlot, boolean original, EdgeState fromEdgePrevState) {
+            return (fromSlot + 1L)
+                    | ((long) agent << AGENT_SHIFT)
+                    | (original ? 1L << ORIGINAL_SHIFT : 0L)
+                    | ((long) fromEdgePrevState.code << STATE_SHIFT);
+        }
+
+        public static long withToSlot(long visit, int toSlot) {
+            return (visit & ~(SLOT_MASK << TO_SHIFT)) | ((toSlot + 1L) << TO_SHIFT);
+        }
+
+        public static int getFromSlot(long visit) {
+            return (int) (visit & SLOT_MASK) - 1;
+        }
+
+        public static int getToSlot(long visit) {
+            return (int) ((visit >>> TO_SHIFT) & SLOT_MASK) - 1;
+        }
+
+        public static int getAgent(long visit) {
+            return (int) ((visit >>> AGENT_SHIFT) & AGENT_MASK);
+        }
+
+        public static boolean isOriginal(long visit) {
+            return ((visit >>> ORIGINAL_SHIFT) & 1L) != 0;
+        }
+
+        public static EdgeState getFromEdgePrevState(long visit) {
+            return EdgeState.fromCode((byte) (visit >>> STATE_SHIFT));
+        }
+
+        public static boolean isFinished(long visit) {
+            return getToSlot(visit) != NO_EDGE;
+        }
+
+        /**
+         * Renders a visit for the Gui labels, e.g. "A1:AB->BC".
+         */
+        public static String toString(long visit, CompactGraph graph, int node, ArrayList<Agent> agents) {
+            int from = getFromSlot(visit), to = getToSlot(visit);
+            String label = agents.get(getAgent(visit)).getCode() + ":";
+            label += from == NO_EDGE ? "null" : graph.getEdgeId(graph.getEdge(node, from));
             label += "->";
-            label += to == null ? "null" : to.getId();
+            label += to == NO_EDGE ? "null" : graph.getEdgeId(graph.getEdge(node, to));
             return label;
         }
     }
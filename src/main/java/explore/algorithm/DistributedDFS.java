@@ -1,17 +1,15 @@
 package main.java.explore.algorithm;
 
-import lombok.Data;
 import main.java.explore.Agent;
+import main.java.explore.graph.CompactGraph;
 import main.java.explore.graph.EdgeState;
-import org.graphstream.graph.Edge;
-import org.graphstream.graph.Graph;
+import main.java.explore.util.IntList;
 
 import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.Random;
 
-public class DistributedDFS implements Algorithm<DistributedDFS.MaDDfsMemory, DistributedDFS.MaDDfsStorage> {
+public class DistributedDFS extends Algorithm<DistributedDFS.MaDDfsMemory, DistributedDFS.MaDDfsStorage> {
 
     //for graphical representation, territories are marked with different colors
     //there should not be more than 7 agents ever in gui
@@ -26,65 +24,81 @@ public class DistributedDFS implements Algorithm<DistributedDFS.MaDDfsMemory, Di
     };
 
     @Override
-    public void init(Graph graph, ArrayList<Agent> agents, int agentNum) throws Exception {
+    public void init(CompactGraph graph, ArrayList<Agent> agents, int agentNum) {
         Random random = new Random();
         int[] startNodeIndexes = new int[agentNum];
         for (int i=0; i< startNodeIndexes.length; i++) {
             startNodeIndexes[i] = random.nextInt(graph.getNodeCount());
         }
-        Algorithm.super.init(graph, agents, agentNum, MaDDfsMemory.class, MaDDfsStorage.class, startNodeIndexes);
+        super.init(graph, agents, agentNum, startNodeIndexes);
     }
 
     @Override
-    public void evaluateOnArrival(Agent agent, Edge fromEdge) {
-        //get storage and memory
-        MaDDfsStorage store = agent.getCurrentNode().getAttribute(STORAGEID);
+    protected MaDDfsStorage createStorage(int nodeCount) {
+        return new MaDDfsStorage(nodeCount);
+    }
+
+    @Override
+    protected MaDDfsMemory createMemory() {
+        return new MaDDfsMemory();
+    }
+
+    @Override
+    protected MaDDfsMemory resetMemory(MaDDfsMemory memory) {
+        memory.clear();
+        return memory;
+    }
+
+    @Override
+    public void evaluateOnArrival(Agent agent, int fromEdge) {
+        //get memory
+        int node = agent.getCurrentNode();
         MaDDfsMemory memory = (MaDDfsMemory) agent.getMemory();
 
         //check and set if first visit
-        if (store.getExploredBy() == 0) {
-            store.setExploredBy(agent.getId());
+        if (storage.exploredBy[node] == 0) {
+            storage.exploredBy[node] = territoryOf(agent);
         }
-        int exploredBy = store.getExploredBy();
+        int exploredBy = storage.exploredBy[node];
 
         //mark the fromEdge as used and which territory it belongs to, and add to path
-        if (fromEdge != null) { //it is null at startNode
+        if (fromEdge != NO_EDGE) { //it is NO_EDGE at startNode
             //move backwards
             if (!memory.isEmpty() && fromEdge == memory.getLast()) {
                 memory.removeLast();
             }
             //normal move
             else {
-                EdgeState.VISITED.setEdge(fromEdge);
-                fromEdge.setAttribute(LABELID, exploredBy);
+                edges.setState(fromEdge, EdgeState.VISITED);
+                edges.setLabel(fromEdge, exploredBy);
                 memory.add(fromEdge);
             }
         }
     }
 
     @Override
-    public Edge selectNextStep(Agent agent) {
-        Edge nextEdge = null;
-        MaDDfsStorage store = agent.getCurrentNode().getAttribute(STORAGEID);
+    public int selectNextStep(Agent agent) {
+        int nextEdge = NO_EDGE;
+        int node = agent.getCurrentNode();
         MaDDfsMemory memory = (MaDDfsMemory)agent.getMemory();
 
         //foreign territory
-        if (store.getExploredBy() != agent.getId()) {
+        if (storage.exploredBy[node] != territoryOf(agent)) {
             if (!memory.isEmpty()) {
                 nextEdge = memory.getLast();
             }
         }
         //own territory
         else {
-            Iterator<Edge> it = agent.getCurrentNode().getEdgeIterator();
-            while (it.hasNext() && nextEdge == null) {
-                Edge edge = it.next();
-                if (edge.getAttribute(EDGESTATEID) == EdgeState.UNVISITED) {
+            int degree = graph.getDegree(node);
+            for (int i = 0; i < degree && nextEdge == NO_EDGE; i++) {
+                int edge = graph.getEdge(node, i);
+                if (edges.hasState(edge, EdgeState.UNVISITED)) {
                     nextEdge = edge;
                 }
             }
 
-            if (nextEdge == null) {
+            if (nextEdge == NO_EDGE) {
                 if (!memory.isEmpty()) {
                     nextEdge = memory.getLast();
                 }
@@ -95,21 +109,38 @@ public class DistributedDFS implements Algorithm<DistributedDFS.MaDDfsMemory, Di
     }
 
     @Override
-    public boolean agentStops(Graph graph, ArrayList<Agent> agents, Agent agent) {
-        return selectNextStep(agent) == null;
+    public boolean supportsParallelTick() {
+        return true;
+    }
+
+    @Override
+    public boolean agentStops(ArrayList<Agent> agents, Agent agent) {
+        return selectNextStep(agent) == NO_EDGE;
     }
 
 
-    public static class MaDDfsMemory extends LinkedList<Edge> {
+    public static class MaDDfsMemory extends IntList {
     }
 
-    @Data
-    public static class MaDDfsStorage {
-        private int exploredBy = 0;
+    public static class MaDDfsStorage implements NodeStorage {
+        public final int[] exploredBy;
+
+        public MaDDfsStorage(int nodeCount) {
+            exploredBy = new int[nodeCount];
+        }
 
         @Override
-        public String toString() {
-            return Integer.toString(exploredBy);
+        public String getLabel(int node) {
+            return Integer.toString(exploredBy[node]);
+        }
+
+        @Override
+        public boolean reset(int nodeCount) {
+            if (nodeCount > exploredBy.length) {
+                return false;
+            }
+            Arrays.fill(exploredBy, 0, nodeCount, 0);
+            return true;
         }
     }
 }
@@ -2,64 +2,80 @@ package main.java.explore.algorithm;
 
 import lombok.Data;
 import main.java.explore.Agent;
+import main.java.explore.graph.CompactGraph;
 import main.java.explore.graph.EdgeState;
-import org.graphstream.graph.Edge;
-import org.graphstream.graph.Graph;
-import org.graphstream.graph.Node;
+import main.java.explore.util.IntList;
 
 import java.util.*;
 
-public class ExtendedDDFS implements Algorithm<ExtendedDDFS.MaEDDfsMemory, ExtendedDDFS.MaEDDfsStorage> {
+public class ExtendedDDFS extends Algorithm<ExtendedDDFS.MaEDDfsMemory, ExtendedDDFS.MaEDDfsStorage> {
 
     @Override
-    public void init(Graph graph, ArrayList<Agent> agents, int agentNum) throws Exception {
+    public void init(CompactGraph graph, ArrayList<Agent> agents, int agentNum) {
         Random random = new Random();
         int[] startNodeIndexes = new int[agentNum];
         for (int i=0; i< startNodeIndexes.length; i++) {
             startNodeIndexes[i] = random.nextInt(graph.getNodeCount());
         }
-        Algorithm.super.init(graph, agents, agentNum, MaEDDfsMemory.class, MaEDDfsStorage.class, startNodeIndexes);
+        super.init(graph, agents, agentNum, startNodeIndexes);
     }
 
     @Override
-    public void evaluateOnArrival(Agent agent, Edge fromEdge) {
-        //get storage and memory
-        MaEDDfsStorage store = agent.getCurrentNode().getAttribute(STORAGEID);
+    protected MaEDDfsStorage createStorage(int nodeCount) {
+        return new MaEDDfsStorage(nodeCount);
+    }
+
+    @Override
+    protected MaEDDfsMemory createMemory() {
+        return new MaEDDfsMemory();
+    }
+
+    @Override
+    protected MaEDDfsMemory resetMemory(MaEDDfsMemory memory) {
+        memory.clear();
+        memory.setInSearchMode(true);
+        memory.getKnownAgents().clear();
+        return memory;
+    }
+
+    @Override
+    public void evaluateOnArrival(Agent agent, int fromEdge) {
+        //get memory
+        int node = agent.getCurrentNode();
         MaEDDfsMemory memory = (MaEDDfsMemory) agent.getMemory();
 
         //explore mode: mark edge, keep track
-        if (!memory.isInSearchMode() && fromEdge != null) {
+        if (!memory.isInSearchMode() && fromEdge != NO_EDGE) {
             //move backwards
             if (!memory.isEmpty() && fromEdge == memory.getLast()) {
                 memory.removeLast();
             }
             //normal move
             else {
-                if (store.getExploredBy() == 0) {
-                    store.setExploredBy(agent.getId());
+                if (storage.exploredBy[node] == 0) {
+                    storage.exploredBy[node] = territoryOf(agent);
                 }
-                EdgeState.VISITED.setEdge(fromEdge);
-                fromEdge.setAttribute(LABELID, store.getExploredBy());
+                edges.setState(fromEdge, EdgeState.VISITED);
+                edges.setLabel(fromEdge, storage.exploredBy[node]);
                 memory.add(fromEdge);
             }
         }
 
         //check if first visit in search mode: mark node, negate search mode
-        if (store.getExploredBy() == 0) {
-            store.setExploredBy(agent.getId());
+        if (storage.exploredBy[node] == 0) {
+            storage.exploredBy[node] = territoryOf(agent);
             memory.setInSearchMode(false);
         }
         //acquire agent id if on foreign territory
-        else if (store.getExploredBy() != agent.getId()) {
-            memory.getKnownAgentIds().add(store.getExploredBy());
+        else if (storage.exploredBy[node] != territoryOf(agent)) {
+            memory.getKnownAgents().set(storage.exploredBy[node] - 1);
         }
     }
 
     @Override
-    public Edge selectNextStep(Agent agent) {
-        Node currentNode = agent.getCurrentNode();
-        Edge nextEdge = null;
-        MaEDDfsStorage store = currentNode.getAttribute(STORAGEID);
+    public int selectNextStep(Agent agent) {
+        int currentNode = agent.getCurrentNode();
+        int nextEdge = NO_EDGE;
         MaEDDfsMemory memory = (MaEDDfsMemory)agent.getMemory();
 
         //explore mode
@@ -67,22 +83,22 @@ public class ExtendedDDFS implements Algorithm<ExtendedDDFS.MaEDDfsMemory, Exten
             //foreign territory
             //memory should only be empty in foreign if two agent start on same node:
             // but then the second starts in search mode
-            if (store.getExploredBy() != agent.getId()) {
+            if (storage.exploredBy[currentNode] != territoryOf(agent)) {
                 if (!memory.isEmpty()) {
                     nextEdge = memory.getLast();
                 }
             }
             //own territory
             else {
-                Iterator<Edge> it = currentNode.getEdgeIterator();
-                while (it.hasNext() && nextEdge == null) {
-                    Edge edge = it.next();
-                    if (edge.getAttribute(EDGESTATEID) == EdgeState.UNVISITED) {
+                int degree = graph.getDegree(currentNode);
+                for (int i = 0; i < degree && nextEdge == NO_EDGE; i++) {
+                    int edge = graph.getEdge(currentNode, i);
+                    if (edges.hasState(edge, EdgeState.UNVISITED)) {
                         nextEdge = edge;
                     }
                 }
 
-                if (nextEdge == null) {
+                if (nextEdge == NO_EDGE) {
                     if (!memory.isEmpty()) {
                         nextEdge = memory.getLast();
                     }
@@ -96,50 +112,65 @@ public class ExtendedDDFS implements Algorithm<ExtendedDDFS.MaEDDfsMemory, Exten
 
         //search mode
         if (memory.isInSearchMode()) {
-            assert (nextEdge == null);
-            int degree = currentNode.getDegree();
-            int route = store.routeIndex;
-            nextEdge = currentNode.getEdge(route);
+            assert (nextEdge == NO_EDGE);
+            int degree = graph.getDegree(currentNode);
+            int route = storage.routeIndex[currentNode];
+            nextEdge = graph.getEdge(currentNode, route);
             int count = 0;
-            while (nextEdge.getAttribute(EDGESTATEID) != EdgeState.UNVISITED && count < degree) {
+            while (!edges.hasState(nextEdge, EdgeState.UNVISITED) && count < degree) {
                 route = (route + 1) % degree;
                 count++;
-                nextEdge =currentNode.getEdge(route);
+                nextEdge = graph.getEdge(currentNode, route);
             }
-            store.setRouteIndex((route + 1) % degree);
+            storage.routeIndex[currentNode] = (route + 1) % degree;
         }
 
         return nextEdge;
     }
 
     @Override
-    public boolean agentStops(Graph graph, ArrayList<Agent> agents, Agent agent) {
+    public boolean agentStops(ArrayList<Agent> agents, Agent agent) {
         MaEDDfsMemory memory = (MaEDDfsMemory) agent.getMemory();
-        for (Agent a : agents) {
-            if (memory.knownAgentIds.contains(a.getId())) {
-                MaEDDfsMemory memory2 = (MaEDDfsMemory) a.getMemory();
-                if (!memory2.isInSearchMode()) {
-                    return false;
-                }
+        BitSet knownAgents = memory.getKnownAgents();
+        for (int i = knownAgents.nextSetBit(0); i >= 0; i = knownAgents.nextSetBit(i + 1)) {
+            MaEDDfsMemory memory2 = (MaEDDfsMemory) agents.get(i).getMemory();
+            if (!memory2.isInSearchMode()) {
+                return false;
             }
         }
         return memory.isInSearchMode();
     }
 
     @Data
-    public static class MaEDDfsMemory extends LinkedList<Edge> {
-        private boolean inSearchMode = true;
-        private HashSet<Integer> knownAgentIds =new HashSet<>();
+    public static class MaEDDfsMemory extends IntList {
+        //read by other agents deciding to stop
+        private volatile boolean inSearchMode = true;
+        //indexes of the agents whose territory has been seen
+        private BitSet knownAgents = new BitSet();
     }
 
-    @Data
-    public static class MaEDDfsStorage {
-        private int exploredBy = 0;
-        public int routeIndex = 0;
+    public static class MaEDDfsStorage implements NodeStorage {
+        public final int[] exploredBy;
+        public final int[] routeIndex;
+
+        public MaEDDfsStorage(int nodeCount) {
+            exploredBy = new int[nodeCount];
+            routeIndex = new int[nodeCount];
+        }
 
         @Override
-        public String toString() {
-            return exploredBy + ", " + routeIndex;
+        public String getLabel(int node) {
+            return exploredBy[node] + ", " + routeIndex[node];
+        }
+
+        @Override
+        public boolean reset(int nodeCount) {
+            if (nodeCount > exploredBy.length) {
+                return false;
+            }
+            Arrays.fill(exploredBy, 0, nodeCount, 0);
+            Arrays.fill(routeIndex, 0, nodeCount, 0);
+            return true;
         }
     }
 }
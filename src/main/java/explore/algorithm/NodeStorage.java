@@ -0,0 +1,22 @@
+package main.java.explore.algorithm;
+
+/**
+ * Per-run node storage of an algorithm, allocated once for all nodes and indexed by node index.
+ * Simple storages keep one primitive array (column) per stored field.
+ */
+public interface NodeStorage {
+
+    /**
+     * Returns the string representation of a node's storage for the graphical labels.
+     * @param node Node index.
+     * @return Label text.
+     */
+    String getLabel(int node);
+
+    /**
+     * Clears the storage for a new run, keeping its memory.
+     * @param nodeCount Number of nodes of the next run's graph.
+     * @return False if the storage cannot hold that many nodes, then a new storage is created.
+     */
+    boolean reset(int nodeCount);
+}
@@ -1,58 +1,90 @@
 package main.java.explore.algorithm;
 
-import lombok.Data;
 import main.java.explore.Agent;
+import main.java.explore.graph.CompactGraph;
 import main.java.explore.graph.EdgeState;
-import org.graphstream.graph.Edge;
-import org.graphstream.graph.Graph;
 
 import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
-public class RotorRouter implements Algorithm<RotorRouter.RRMemory, RotorRouter.RRStorage> {
+public class RotorRouter extends Algorithm<RotorRouter.RRMemory, RotorRouter.RRStorage> {
+
+    //number of edges no agent has traversed yet, the exploration ends when it reaches 0
+    private final AtomicInteger unvisitedEdges = new AtomicInteger();
 
     @Override
-    public void init(Graph graph, ArrayList<Agent> agents, int agentNum) throws Exception {
-        Algorithm.super.init(graph, agents, agentNum, RRMemory.class, RRStorage.class);
+    public void init(CompactGraph graph, ArrayList<Agent> agents, int agentNum) {
+        unvisitedEdges.set(graph.getEdgeCount());
+        super.init(graph, agents, agentNum, new int[]{DEFAULT_START_INDEX});
     }
 
     @Override
-    public void evaluateOnArrival(Agent agent, Edge fromEdge) {
-        //mark the fromEdge as used
-        if (fromEdge == null) return;
-        EdgeState.VISITED.setEdge(fromEdge);
+    protected RRStorage createStorage(int nodeCount) {
+        return new RRStorage(nodeCount);
+    }
+
+    @Override
+    protected RRMemory createMemory() {
+        return new RRMemory();
     }
 
     @Override
-    public Edge selectNextStep(Agent agent) {
-        Edge toGo;
-        //get storage
-        synchronized (STORELOCK) {
-            RRStorage store = agent.getCurrentNode().getAttribute(STORAGEID);
-            int route = store.routeIndex;
-            toGo = agent.getCurrentNode().getEdge(route);
-            route += 1;
-            route = route % agent.getCurrentNode().getEdgeSet().size();
-            store.setRouteIndex(route);
+    public void evaluateOnArrival(Agent agent, int fromEdge) {
+        //mark the fromEdge as used
+        if (fromEdge == NO_EDGE) return;
+        //only the agent that switches the edge from unvisited counts it
+        if (edges.compareAndSetState(fromEdge, EdgeState.UNVISITED, EdgeState.VISITED)) {
+            unvisitedEdges.decrementAndGet();
         }
-        return toGo;
     }
 
     @Override
-    public boolean agentStops(Graph graph, ArrayList<Agent> agents, Agent agent) {
-        return graph.getEdgeSet()
-                .stream()
-                .allMatch(e -> e.getAttribute(EDGESTATEID) == EdgeState.VISITED);
+    public int selectNextStep(Agent agent) {
+        int node = agent.getCurrentNode();
+        int degree = graph.getDegree(node);
+        //advance the rotor atomically, agents on the same node get consecutive edges
+        int route;
+        do {
+            route = storage.routeIndex.get(node);
+        } while (!storage.routeIndex.compareAndSet(node, route, (route + 1) % degree));
+        return graph.getEdge(node, route);
+    }
+
+    @Override
+    public boolean supportsParallelTick() {
+        return true;
+    }
+
+    @Override
+    public boolean agentStops(ArrayList<Agent> agents, Agent agent) {
+        return unvisitedEdges.get() == 0;
     }
 
     public static class RRMemory {
     }
 
-    @Data
-    public static class RRStorage {
-        public int routeIndex = 0;
+    public static class RRStorage implements NodeStorage {
+        public final AtomicIntegerArray routeIndex;
+
+        public RRStorage(int nodeCount) {
+            routeIndex = new AtomicIntegerArray(nodeCount);
+        }
+
+        @Override
+        public String getLabel(int node) {
+            return Integer.toString(routeIndex.get(node));
+        }
+
         @Override
-        public String toString() {
-            return Integer.toString(routeIndex);
+        public boolean reset(int nodeCount) {
+            if (nodeCount > routeIndex.length()) {
+                return false;
+            }
+            for (int n = 0; n < nodeCount; n++) {
+                routeIndex.set(n, 0);
+            }
+            return true;
         }
     }
 }
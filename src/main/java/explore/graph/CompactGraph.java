@@ -0,0 +1,382 @@
+package main.java.explore.graph;
+
+import main.java.explore.util.IntList;
+import org.graphstream.stream.SinkAdapter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * Immutable, array based (compressed sparse row) representation of an undirected graph topology.
+ * Nodes and edges are identified by their indexes, which are the same as the indexes a GraphStream graph
+ * would assign when receiving the same events. The incident edges of node n are stored
+ * between offsets[n] and offsets[n+1], in the order GraphStream would return them.
+ */
+public final class CompactGraph {
+    //package private for GraphFile, never modified after construction
+    final int[] offsets;
+    final int[] neighbours;
+    final int[] edges;
+    final int[] endpoints;
+    //position of every edge amongst the edges of its source and of its target, derived from the arrays above
+    private final int[] slots;
+    private final String[] nodeIds;
+    private final String[] edgeIds;
+
+    CompactGraph(int[] offsets, int[] neighbours, int[] edges, int[] endpoints, String[] nodeIds, String[] edgeIds) {
+        this.offsets = offsets;
+        this.neighbours = neighbours;
+        this.edges = edges;
+        this.endpoints = endpoints;
+        this.nodeIds = nodeIds;
+        this.edgeIds = edgeIds;
+        this.slots = new int[endpoints.length];
+        Arrays.fill(slots, -1);
+        for (int node = 0; node < offsets.length - 1; node++) {
+            for (int i = offsets[node]; i < offsets[node + 1]; i++) {
+                int edge = edges[i];
+                //a loop is twice amongst the edges of its node: first as the source, then as the target
+                int end = endpoints[2 * edge] == node && slots[2 * edge] < 0 ? 2 * edge : 2 * edge + 1;
+                slots[end] = i - offsets[node];
+            }
+        }
+    }
+
+    public int getNodeCount() {
+        return offsets.length - 1;
+    }
+
+    public int getEdgeCount() {
+        return endpoints.length / 2;
+    }
+
+    public int getDegree(int node) {
+        return offsets[node + 1] - offsets[node];
+    }
+
+    /**
+     * Returns the index of the i-th edge incident to a node.
+     * @param node Node index.
+     * @param i Position of the edge amongst the node's edges.
+     * @return The edge index.
+     */
+    public int getEdge(int node, int i) {
+        return edges[offsets[node] + i];
+    }
+
+    /**
+     * Returns the node on the other end of the i-th edge incident to a node.
+     * @param node Node index.
+     * @param i Position of the edge amongst the node's edges.
+     * @return The neighbour node index.
+     */
+    public int getNeighbour(int node, int i) {
+        return neighbours[offsets[node] + i];
+    }
+
+    /**
+     * Finds the position of an edge amongst a node's edges.
+     * @param node Node index.
+     * @param edge Edge index.
+     * @return The position, or -1 if the edge is not incident to the node.
+     */
+    public int indexOfEdge(int node, int edge) {
+        if (endpoints[2 * edge] == node) {
+            return slots[2 * edge];
+        }
+        return endpoints[2 * edge + 1] == node ? slots[2 * edge + 1] : -1;
+    }
+
+    public int getSource(int edge) {
+        return endpoints[2 * edge];
+    }
+
+    public int getTarget(int edge) {
+        return endpoints[2 * edge + 1];
+    }
+
+    public int getOpposite(int edge, int node) {
+        int source = endpoints[2 * edge];
+        return source == node ? endpoints[2 * edge + 1] : source;
+    }
+
+    public String getNodeId(int node) {
+        return nodeIds == null ? Integer.toString(node) : nodeIds[node];
+    }
+
+    public String getEdgeId(int edge) {
+        return edgeIds == null ? Integer.toString(edge) : edgeIds[edge];
+    }
+
+    /**
+     * Estimates the memory held by the topology, without the ids.
+     * @return The size in bytes.
+     */
+    public long getFootprint() {
+        return 4L * (offsets.length + neighbours.length + edges.length + endpoints.length + slots.length);
+    }
+
+    /**
+     * Checks if every node can be reached from the first one.
+     * @return True if the graph is connected.
+     */
+    public boolean isConnected() {
+        int nodeCount = getNodeCount();
+        if (nodeCount == 0) {
+            return true;
+        }
+        boolean[] reached = new boolean[nodeCount];
+        int[] queue = new int[nodeCount];
+        int head = 0, tail = 0;
+        reached[0] = true;
+        queue[tail++] = 0;
+        while (head < tail) {
+            int node = queue[head++];
+            for (int i = offsets[node]; i < offsets[node + 1]; i++) {
+                int neighbour = neighbours[i];
+                if (!reached[neighbour]) {
+                    reached[neighbour] = true;
+                    queue[tail++] = neighbour;
+                }
+            }
+        }
+        return tail == nodeCount;
+    }
+
+    /**
+     * Collects graph events (e.g. from a GraphStream generator) and freezes them into a CompactGraph.
+     * Removals follow GraphStream's swap-with-last semantics, so indexes stay identical to a SingleGraph.
+     */
+    public static class Builder extends SinkAdapter {
+        private final HashMap<String, Integer> nodeIndexes = new HashMap<>();
+        private final HashMap<String, Integer> edgeIndexes = new HashMap<>();
+        private final ArrayList<String> nodeIds = new ArrayList<>();
+        private final ArrayList<String> edgeIds = new ArrayList<>();
+        private final ArrayList<IntList> incidentEdges = new ArrayList<>();
+        private final IntList sources = new IntList();
+        private final IntList targets = new IntList();
+
+        public void addNode(String nodeId) {
+            nodeIndexes.put(nodeId, nodeIds.size());
+            nodeIds.add(nodeId);
+            incidentEdges.add(new IntList());
+        }
+
+        public void addEdge(String edgeId, String fromNodeId, String toNodeId) {
+            int edge = edgeIds.size();
+            int source = nodeIndexes.get(fromNodeId);
+            int target = nodeIndexes.get(toNodeId);
+            edgeIndexes.put(edgeId, edge);
+            edgeIds.add(edgeId);
+            sources.add(source);
+            targets.add(target);
+            incidentEdges.get(source).add(edge);
+            if (target != source) {
+                incidentEdges.get(target).add(edge);
+            }
+        }
+
+        public void removeEdge(String edgeId) {
+            int edge = edgeIndexes.remove(edgeId);
+            detach(sources.get(edge), edge);
+            if (targets.get(edge) != sources.get(edge)) {
+                detach(targets.get(edge), edge);
+            }
+
+            //the last edge takes the place of the removed one
+            int last = edgeIds.size() - 1;
+            if (edge != last) {
+                String lastId = edgeIds.get(last);
+                edgeIds.set(edge, lastId);
+                edgeIndexes.put(lastId, edge);
+                sources.set(edge, sources.get(last));
+                targets.set(edge, targets.get(last));
+                relabel(sources.get(edge), last, edge);
+                if (targets.get(edge) != sources.get(edge)) {
+                    relabel(targets.get(edge), last, edge);
+                }
+            }
+            edgeIds.remove(last);
+            sources.removeLast();
+            targets.removeLast();
+        }
+
+        public void removeNode(String nodeId) {
+            int node = nodeIndexes.remove(nodeId);
+            IntList incident = incidentEdges.get(node);
+            while (!incident.isEmpty()) {
+                removeEdge(edgeIds.get(incident.get(0)));
+            }
+
+            //the last node takes the place of the removed one
+            int last = nodeIds.size() - 1;
+            if (node != last) {
+                String lastId = nodeIds.get(last);
+                nodeIds.set(node, lastId);
+                nodeIndexes.put(lastId, node);
+                incidentEdges.set(node, incidentEdges.get(last));
+                IntList moved = incidentEdges.get(node);
+                for (int i = 0; i < moved.size(); i++) {
+                    int edge = moved.get(i);
+                    if (sources.get(edge) == last) sources.set(edge, node);
+                    if (targets.get(edge) == last) targets.set(edge, node);
+                }
+            }
+            nodeIds.remove(last);
+            incidentEdges.remove(last);
+        }
+
+        public void clear() {
+            nodeIndexes.clear();
+            edgeIndexes.clear();
+            nodeIds.clear();
+            edgeIds.clear();
+            incidentEdges.clear();
+            sources.clear();
+            targets.clear();
+        }
+
+        /**
+         * Makes the collected graph connected in one pass, instead of generating it again until it is.
+         * The components are found with union-find over the edges, then every component is joined to a random node
+         * of the ones already joined. For every joining edge, a random edge that closed a cycle is removed,
+         * so the number of edges (and the average degree) stays the same while there are cycles to spare.
+         * @param random Source of the random choices.
+         * @return The number of edges added.
+         */
+        public int connect(Random random) {
+            int nodeCount = nodeIds.size();
+            int edgeCount = edgeIds.size();
+            int[] parent = new int[nodeCount];
+            for (int n = 0; n < nodeCount; n++) {
+                parent[n] = n;
+            }
+            //edges whose endpoints were already connected, removing them keeps the components
+            IntList cycleEdges = new IntList();
+            int components = nodeCount;
+            for (int e = 0; e < edgeCount; e++) {
+                int a = find(parent, sources.get(e)), b = find(parent, targets.get(e));
+                if (a == b) {
+                    cycleEdges.add(e);
+                } else {
+                    parent[Math.max(a, b)] = Math.min(a, b);
+                    components--;
+                }
+            }
+            if (components <= 1) {
+                return 0;
+            }
+
+            //the nodes of each component, in a row (counting sort by root)
+            int[] start = new int[nodeCount + 1];
+            for (int n = 0; n < nodeCount; n++) {
+                start[find(parent, n) + 1]++;
+            }
+            for (int n = 0; n < nodeCount; n++) {
+                start[n + 1] += start[n];
+            }
+            int[] members = new int[nodeCount];
+            int[] fill = Arrays.copyOf(start, nodeCount);
+            for (int n = 0; n < nodeCount; n++) {
+                members[fill[find(parent, n)]++] = n;
+            }
+
+            //the first component is the root, the others are joined in index order
+            int joined = start[1];
+            for (int root = 1; root < nodeCount; root++) {
+                int size = start[root + 1] - start[root];
+                if (size == 0) {
+                    continue;
+                }
+                int from = members[start[root] + random.nextInt(size)];
+                int to = members[random.nextInt(joined)];
+                addEdge(nodeIds.get(to) + "_" + nodeIds.get(from), nodeIds.get(to), nodeIds.get(from));
+                if (!cycleEdges.isEmpty()) {
+                    //the joining edge is the last one, it takes the place of the removed edge
+                    int i = random.nextInt(cycleEdges.size());
+                    removeEdge(edgeIds.get(cycleEdges.get(i)));
+                    cycleEdges.swapRemove(i);
+                }
+                joined += size;
+            }
+            return components - 1;
+        }
+
+        private static int find(int[] parent, int node) {
+            while (parent[node] != node) {
+                parent[node] = parent[parent[node]];
+                node = parent[node];
+            }
+            return node;
+        }
+
+        private void detach(int node, int edge) {
+            IntList incident = incidentEdges.get(node);
+            incident.swapRemove(incident.indexOf(edge));
+        }
+
+        private void relabel(int node, int oldEdge, int newEdge) {
+            IntList incident = incidentEdges.get(node);
+            incident.set(incident.indexOf(oldEdge), newEdge);
+        }
+
+        /**
+         * Freezes the collected topology.
+         * @param keepIds Set true if the original node and edge ids are needed later (e.g. for rendering).
+         * @return The compact graph.
+         */
+        public CompactGraph build(boolean keepIds) {
+            int nodeCount = nodeIds.size();
+            int edgeCount = edgeIds.size();
+            int[] offsets = new int[nodeCount + 1];
+            for (int n = 0; n < nodeCount; n++) {
+                offsets[n + 1] = offsets[n] + incidentEdges.get(n).size();
+            }
+            int[] neighbours = new int[offsets[nodeCount]];
+            int[] edges = new int[offsets[nodeCount]];
+            for (int n = 0; n < nodeCount; n++) {
+                IntList incident = incidentEdges.get(n);
+                for (int i = 0; i < incident.size(); i++) {
+                    int edge = incident.get(i);
+                    edges[offsets[n] + i] = edge;
+                    neighbours[offsets[n] + i] = sources.get(edge) == n ? targets.get(edge) : sources.get(edge);
+                }
+            }
+            int[] endpoints = new int[2 * edgeCount];
+            for (int e = 0; e < edgeCount; e++) {
+                endpoints[2 * e] = sources.get(e);
+                endpoints[2 * e + 1] = targets.get(e);
+            }
+            return new CompactGraph(offsets, neighbours, edges, endpoints,
+                    keepIds ? nodeIds.toArray(new String[0]) : null,
+                    keepIds ? edgeIds.toArray(new String[0]) : null);
+        }
+
+        @Override
+        public void nodeAdded(String sourceId, long timeId, String nodeId) {
+            addNode(nodeId);
+        }
+
+        @Override
+        public void nodeRemoved(String sourceId, long timeId, String nodeId) {
+            removeNode(nodeId);
+        }
+
+        @Override
+        public void edgeAdded(String sourceId, long timeId, String edgeId, String fromNodeId, String toNodeId, boolean directed) {
+            addEdge(edgeId, fromNodeId, toNodeId);
+        }
+
+        @Override
+        public void edgeRemoved(String sourceId, long timeId, String edgeId) {
+            removeEdge(edgeId);
+        }
+
+        @Override
+        public void graphCleared(String sourceId, long timeId) {
+            clear();
+        }
+    }
+}
@@ -9,15 +9,26 @@ public enum EdgeState {
     VISITED ("size: 3px;fill-color: rgb(47,79,79);"),
     FINISHED ("size: 3px;fill-color: rgb(205,92,92);");
 
+    private static final EdgeState[] VALUES = values();
+
     public final String style;
+    public final byte code;
 
     EdgeState (String style){
         this.style = style;
+        this.code = (byte) ordinal();
+    }
+
+    public static EdgeState fromCode(byte code) {
+        return VALUES[code];
     }
 
+    /**
+     * Copies the state onto a rendered edge. The simulation itself keeps edge states in an EdgeStore.
+     * @param edge The rendered edge.
+     */
     public void setEdge(Edge edge){
         edge.addAttribute(Algorithm.EDGESTATEID, EdgeState.this);
     }
 
 }
-
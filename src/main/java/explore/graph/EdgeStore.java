@@ -0,0 +1,128 @@
+package main.java.explore.graph;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * Per-run edge data of an exploration, indexed by edge index: the state of each edge and
+ * the territory label (the id of the agent owning the edge) used by the distributed DFS variants.
+ * Every edge is stamped with the epoch of its last write next to the byte code of its EdgeState: an edge written
+ * in an earlier epoch reads as UNVISITED with NO_LABEL, so resetting the store for the next run is a counter bump.
+ * Labels are set after the state of the edge (see setLabel).
+ */
+public class EdgeStore {
+    public static final int NO_LABEL = 0;
+    private static final int STATE_BITS = 2;
+    private static final int STATE_MASK = (1 << STATE_BITS) - 1;
+    private static final int MAX_EPOCH = Integer.MAX_VALUE >>> STATE_BITS;
+    private static final VarHandle STAMPS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    //epoch << STATE_BITS | state code
+    private int[] stamps;
+    private int[] labels;
+    private int size;
+    private int epoch;
+
+    public EdgeStore(int edgeCount) {
+        //UNVISITED has code 0, NO_LABEL is 0: fresh arrays are already reset
+        stamps = new int[edgeCount];
+        labels = new int[edgeCount];
+        size = edgeCount;
+    }
+
+    /**
+     * Resets every edge to UNVISITED and NO_LABEL, for a run on a graph with the given number of edges.
+     * The arrays are kept if they are large enough, then only the epoch changes.
+     * Must not be called while the edges are in use.
+     * @param edgeCount Number of edges of the next run.
+     */
+    public void reset(int edgeCount) {
+        if (edgeCount > stamps.length) {
+            stamps = new int[edgeCount];
+            labels = new int[edgeCount];
+            epoch = 0;
+        } else if (epoch == MAX_EPOCH) {
+            //the cleared stamps are of epoch 0, so the old labels are stale from epoch 1 on
+            Arrays.fill(stamps, 0);
+            epoch = 1;
+        } else {
+            epoch++;
+        }
+        size = edgeCount;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int code(int stamp) {
+        return stamp >>> STATE_BITS == epoch ? stamp & STATE_MASK : EdgeState.UNVISITED.code;
+    }
+
+    private int stamp(EdgeState state) {
+        return epoch << STATE_BITS | state.code;
+    }
+
+    public EdgeState getState(int edge) {
+        return EdgeState.fromCode((byte) code(stamps[edge]));
+    }
+
+    public boolean hasState(int edge, EdgeState state) {
+        return code(stamps[edge]) == state.code;
+    }
+
+    public void setState(int edge, EdgeState state) {
+        stamps[edge] = stamp(state);
+    }
+
+    /**
+     * Atomically changes the state of an edge, if it is in the expected state.
+     * @param edge The edge index.
+     * @param expected The expected current state.
+     * @param state The new state.
+     * @return True if the state was changed.
+     */
+    public boolean compareAndSetState(int edge, EdgeState expected, EdgeState state) {
+        while (true) {
+            int stamp = (int) STAMPS.getVolatile(stamps, edge);
+            if (code(stamp) != expected.code) {
+                return false;
+            }
+            //retried if another thread wrote the edge meanwhile
+            if (STAMPS.compareAndSet(stamps, edge, stamp, stamp(state))) {
+                return true;
+            }
+        }
+    }
+
+    public int getLabel(int edge) {
+        return stamps[edge] >>> STATE_BITS == epoch ? labels[edge] : NO_LABEL;
+    }
+
+    /**
+     * Sets the label of an edge. An edge not written in this run is stamped as UNVISITED, so the label of an edge
+     * must not be set concurrently with its state.
+     */
+    public void setLabel(int edge, int label) {
+        labels[edge] = label;
+        if (stamps[edge] >>> STATE_BITS != epoch) {
+            stamps[edge] = stamp(EdgeState.UNVISITED);
+        }
+    }
+
+    /**
+     * Counts edges in a given state.
+     * @param state The state.
+     * @return Number of edges in this state.
+     */
+    public int count(EdgeState state) {
+        int count = 0;
+        for (int e = 0; e < size; e++) {
+            if (code(stamps[e]) == state.code) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
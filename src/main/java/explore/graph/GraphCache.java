@@ -0,0 +1,192 @@
+package main.java.explore.graph;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bounded cache of generated graphs, shared by the test cases of a run. The n-th repeat of every test case with
+ * the same graph type, size and degree gets the same graph, generated once from the seed of the run plus n.
+ * Compact graphs are immutable, so concurrent runs share them read-only.
+ * When the cached graphs take more memory than the capacity, the least recently used ones are evicted.
+ * Graphs found in the corpus directory (see {@link GraphFile}) are loaded instead of generated.
+ * Imported graph files are imported once and kept for the whole run, whatever the capacity: every repeat of every
+ * test case on the file gets the same graph. They are not counted in the footprint and never evicted.
+ */
+public class GraphCache {
+    private final long capacity, seed;
+    private final Path corpus;
+    //access ordered, the eldest entry is the least recently used
+    private final LinkedHashMap<Key, CompletableFuture<CompactGraph>> graphs = new LinkedHashMap<>(16, 0.75f, true);
+    private long footprint;
+    private int hits, misses;
+    private final AtomicInteger loaded = new AtomicInteger();
+
+    private static final Logger logger = Logger.getLogger(GraphCache.class.getName());
+
+    /**
+     * @param capacity Memory the cached generated graphs may take, in bytes. 0 disables caching them.
+     * @param seed Seed of the run, the graphs of the repeats are generated from its consecutive values.
+     * @param corpus Directory of pregenerated graph files, or null.
+     */
+    public GraphCache(long capacity, long seed, Path corpus) {
+        this.capacity = capacity;
+        this.seed = seed;
+        this.corpus = corpus;
+    }
+
+    /**
+     * Returns the graph of a repeat, generating it if it is not cached. Concurrent callers asking for the same graph
+     * wait for a single generation.
+     * @param graphType Type of the graph.
+     * @param graphSize Number of nodes.
+     * @param avgDegree Average degree of the nodes (if applicable for the type).
+     * @param repeat Index of the repeat.
+     * @return The compact graph, without ids.
+     */
+    public CompactGraph getGraph(GraphType graphType, int graphSize, int avgDegree, int repeat) {
+        return get(new Key(graphType, graphSize, avgDegree, seed + repeat, null));
+    }
+
+    /**
+     * Returns an imported graph, importing it if it is not cached.
+     * @param file Edge list or DGS file, see {@link GraphImporter}.
+     * @return The compact graph, without ids.
+     * @throws UncheckedIOException If the file cannot be imported.
+     */
+    public CompactGraph getGraph(Path file) {
+        return get(new Key(null, 0, 0, 0, file.toAbsolutePath().normalize()));
+    }
+
+    private CompactGraph get(Key key) {
+        if (capacity <= 0 && key.file == null) {
+            return generate(key);
+        }
+
+        CompletableFuture<CompactGraph> cached;
+        CompletableFuture<CompactGraph> generated = null;
+        synchronized (this) {
+            cached = graphs.get(key);
+            if (cached == null) {
+                misses++;
+                generated = new CompletableFuture<>();
+                graphs.put(key, generated);
+            } else {
+                hits++;
+            }
+        }
+        if (cached != null) {
+            return cached.join();
+        }
+
+        try {
+            CompactGraph graph = generate(key);
+            synchronized (this) {
+                generated.complete(graph);
+                if (key.file == null) {
+                    footprint += graph.getFootprint();
+                    evict();
+                }
+            }
+            return graph;
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                graphs.remove(key);
+            }
+            generated.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private CompactGraph generate(Key key) {
+        if (key.file != null) {
+            try {
+                return GraphImporter.importGraph(key.file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        if (corpus != null) {
+            Path file = corpus.resolve(GraphFile.fileName(key.graphType, key.graphSize, key.avgDegree, key.seed));
+            if (Files.exists(file)) {
+                try {
+                    CompactGraph graph = GraphFile.read(file);
+                    loaded.incrementAndGet();
+                    return graph;
+                } catch (IOException e) {
+                    logger.log(Level.WARNING, "Graph file could not be loaded, generating instead: " + e.getMessage());
+                }
+            }
+        }
+        return GraphManager.regenerateGraph(key.graphType, key.graphSize, key.avgDegree, false, key.seed);
+    }
+
+    /**
+     * Removes the least recently used graphs until the rest fits into the capacity.
+     * Graphs being generated are not counted yet, so they are skipped, as are the imported graphs.
+     */
+    private void evict() {
+        Iterator<Map.Entry<Key, CompletableFuture<CompactGraph>>> it = graphs.entrySet().iterator();
+        while (footprint > capacity && it.hasNext()) {
+            Map.Entry<Key, CompletableFuture<CompactGraph>> entry = it.next();
+            CompletableFuture<CompactGraph> graph = entry.getValue();
+            if (entry.getKey().file == null && graph.isDone() && !graph.isCompletedExceptionally()) {
+                footprint -= graph.join().getFootprint();
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    public synchronized int getMisses() {
+        return misses;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "GraphCache: " + graphs.size() + " graphs, " + footprint / 1024 + "kB, " + hits + " hits, " + misses + " misses, "
+                + loaded.get() + " loaded from the corpus";
+    }
+
+    private static final class Key {
+        private final GraphType graphType;
+        private final int graphSize, avgDegree;
+        private final long seed;
+        //imported graphs are identified by their file only
+        private final Path file;
+
+        private Key(GraphType graphType, int graphSize, int avgDegree, long seed, Path file) {
+            this.graphType = graphType;
+            this.graphSize = graphSize;
+            this.avgDegree = avgDegree;
+            this.seed = seed;
+            this.file = file;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return graphType == key.graphType && graphSize == key.graphSize && avgDegree == key.avgDegree && seed == key.seed
+                    && Objects.equals(file, key.file);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(graphType, graphSize, avgDegree, seed, file);
+        }
+    }
+}
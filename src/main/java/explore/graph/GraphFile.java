@@ -0,0 +1,138 @@
+package main.java.explore.graph;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary file format of a generated graph, so a corpus of graphs can be generated once and loaded in later runs.
+ * Little endian, a fixed header followed by the arrays of the compact graph:
+ * <pre>
+ * int magic, int version, int graph type (ordinal), int graph size, int avg degree, long seed,
+ * int node count, int edge count, int adjacency length,
+ * int[node count + 1] offsets, int[adjacency length] neighbours, int[adjacency length] edges, int[2 * edge count] endpoints
+ * </pre>
+ * Files are memory mapped and the arrays are bulk copied, there is nothing to parse. A file is written under a
+ * temporary name and moved into place when complete, so a crashed write leaves no partial graph file behind.
+ */
+public final class GraphFile {
+    public static final String EXTENSION = ".graph";
+    private static final int MAGIC = 0x4d414758;
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 8 * Integer.BYTES + Long.BYTES;
+
+    private GraphFile() {
+    }
+
+    /**
+     * Name of the file of a graph in a corpus directory.
+     */
+    public static String fileName(GraphType graphType, int graphSize, int avgDegree, long seed) {
+        return graphType.code + "_" + graphSize + "_" + avgDegree + "_" + seed + EXTENSION;
+    }
+
+    /**
+     * Writes a graph into a temporary file next to the given one, then atomically renames it to the given name,
+     * replacing any file there.
+     * @throws IOException If the file cannot be written, or the file system cannot rename atomically.
+     */
+    public static void write(CompactGraph graph, Path file, GraphType graphType, int graphSize, int avgDegree, long seed)
+            throws IOException {
+        int nodeCount = graph.getNodeCount();
+        int edgeCount = graph.getEdgeCount();
+        int adjacency = graph.neighbours.length;
+        long bytes = HEADER_BYTES + (long) Integer.BYTES * (nodeCount + 1L + 2L * adjacency + 2L * edgeCount);
+        //in the same directory, so the rename does not cross file systems
+        Path temporary = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                buffer.putInt(MAGIC).putInt(VERSION).putInt(graphType.ordinal()).putInt(graphSize).putInt(avgDegree)
+                        .putLong(seed).putInt(nodeCount).putInt(edgeCount).putInt(adjacency);
+                IntBuffer ints = buffer.asIntBuffer();
+                ints.put(graph.offsets).put(graph.neighbours).put(graph.edges).put(graph.endpoints);
+                buffer.force();
+                channel.force(true);
+            }
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Loads a graph written by {@link #write}. The graph has no ids.
+     * @param file The graph file.
+     * @return The compact graph.
+     * @throws IOException If the file cannot be read or is not a graph file of this version.
+     */
+    public static CompactGraph read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException("Not a graph file: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Not a graph file of version " + VERSION + ": " + file);
+            }
+            //graph parameters, only needed by the file name
+            buffer.position(buffer.position() + 3 * Integer.BYTES + Long.BYTES);
+            int nodeCount = buffer.getInt();
+            int edgeCount = buffer.getInt();
+            int adjacency = buffer.getInt();
+            if (nodeCount < 0 || edgeCount < 0 || adjacency < 0
+                    || size != HEADER_BYTES + (long) Integer.BYTES * (nodeCount + 1L + 2L * adjacency + 2L * edgeCount)) {
+                throw new IOException("Truncated graph file: " + file);
+            }
+
+            int[] offsets = new int[nodeCount + 1];
+            int[] neighbours = new int[adjacency];
+            int[] edges = new int[adjacency];
+            int[] endpoints = new int[2 * edgeCount];
+            IntBuffer ints = buffer.asIntBuffer();
+            ints.get(offsets).get(neighbours).get(edges).get(endpoints);
+            if (!isValid(offsets, neighbours, edges, endpoints, edgeCount)) {
+                throw new IOException("Corrupt graph file: " + file);
+            }
+            return new CompactGraph(offsets, neighbours, edges, endpoints, null, null);
+        }
+    }
+
+    /**
+     * Checks that the arrays of a loaded graph can be used without going out of bounds: the offsets start at 0,
+     * do not decrease and end at the adjacency length, every node and edge index is in range,
+     * and the edges of a node have it as an endpoint.
+     */
+    private static boolean isValid(int[] offsets, int[] neighbours, int[] edges, int[] endpoints, int edgeCount) {
+        int nodeCount = offsets.length - 1;
+        if (offsets[0] != 0 || offsets[nodeCount] != neighbours.length) {
+            return false;
+        }
+        for (int endpoint : endpoints) {
+            if (endpoint < 0 || endpoint >= nodeCount) {
+                return false;
+            }
+        }
+        for (int n = 0; n < nodeCount; n++) {
+            if (offsets[n + 1] < offsets[n]) {
+                return false;
+            }
+            for (int i = offsets[n]; i < offsets[n + 1]; i++) {
+                if (neighbours[i] < 0 || neighbours[i] >= nodeCount || edges[i] < 0 || edges[i] >= edgeCount
+                        || endpoints[2 * edges[i]] != n && endpoints[2 * edges[i] + 1] != n) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
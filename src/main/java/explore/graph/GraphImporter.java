@@ -0,0 +1,439 @@
+package main.java.explore.graph;
+
+import main.java.explore.util.IntList;
+import main.java.explore.util.LongIntMap;
+import main.java.explore.util.LongList;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Imports real world topologies from edge list or DGS files.
+ * <p>
+ * Edge lists have an edge per line, given by two node ids separated by whitespace, comma or semicolon.
+ * Further columns (e.g. weights) are ignored, lines starting with # or % are comments.
+ * DGS files (.dgs) are read for their an and ae events, other events are ignored.
+ * <p>
+ * The file is split into chunks at line ends, and the chunks are memory mapped and parsed in parallel.
+ * Nodes are numbered in the order of their first appearance in the file, then a single pass drops the self loops
+ * and duplicate edges and finds the components with union-find. Exploration needs a connected graph, so if there is
+ * more than one component, only the largest one is kept.
+ */
+public final class GraphImporter {
+    public static final String DGS_EXTENSION = ".dgs";
+    private static final long CHUNK_BYTES = 16L * 1024 * 1024;
+    //numeric ids are kept as they are, other ids are encoded as negative chunk local indexes
+    private static final long NO_NODE = Long.MIN_VALUE;
+    private static final int MAX_NUMERIC_DIGITS = 18;
+
+    private static final Logger logger = Logger.getLogger(GraphImporter.class.getName());
+
+    private GraphImporter() {
+    }
+
+    /**
+     * Imports a graph file.
+     * @param file Edge list or DGS (.dgs) file.
+     * @return The largest connected component of the graph, without ids.
+     * @throws IOException If the file cannot be read or has lines that are not edges.
+     */
+    public static CompactGraph importGraph(Path file) throws IOException {
+        long startTime = System.nanoTime();
+        boolean dgs = file.getFileName().toString().toLowerCase().endsWith(DGS_EXTENSION);
+        List<Chunk> chunks;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] bounds = chunkBounds(channel);
+            try {
+                chunks = IntStream.range(0, bounds.length - 1).parallel()
+                        .mapToObj(i -> parseChunk(channel, bounds[i], bounds[i + 1], dgs, i == 0))
+                        .collect(Collectors.toList());
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+
+        for (Chunk chunk : chunks) {
+            if (chunk.error != null) {
+                throw new IOException(file.getFileName() + ": " + chunk.error);
+            }
+        }
+        CompactGraph graph = link(file, chunks);
+        if (graph.getEdgeCount() == 0) {
+            throw new IOException(file.getFileName() + ": no edges.");
+        }
+        logger.log(Level.INFO, "Imported " + file.getFileName() + ": " + graph.getNodeCount() + " nodes, "
+                + graph.getEdgeCount() + " edges in " + (System.nanoTime() - startTime) / 1_000_000 + "ms.");
+        return graph;
+    }
+
+    /**
+     * Splits the file into chunks of about CHUNK_BYTES, every chunk ending with a line end (or the end of the file).
+     */
+    private static long[] chunkBounds(FileChannel channel) throws IOException {
+        long size = channel.size();
+        LongList bounds = new LongList();
+        bounds.add(0);
+        long start = 0;
+        ByteBuffer one = ByteBuffer.allocate(1);
+        while (start + CHUNK_BYTES < size) {
+            long end = start + CHUNK_BYTES;
+            //move the bound after the next line end
+            do {
+                one.clear();
+                if (channel.read(one, end++) <= 0) {
+                    break;
+                }
+            } while (one.get(0) != '\n' && end < size);
+            if (end >= size) {
+                break;
+            }
+            bounds.add(end);
+            start = end;
+        }
+        bounds.add(size);
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    private static Chunk parseChunk(FileChannel channel, long start, long end, boolean dgs, boolean first) {
+        MappedByteBuffer buffer;
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Chunk chunk = new Chunk(buffer);
+        int pos = 0, limit = buffer.limit();
+        int line = 0;
+        while (pos < limit && chunk.error == null) {
+            int lineEnd = pos;
+            while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            //the DGS header: magic and a line with the name and the number of steps and events
+            boolean header = dgs && first && line < 2;
+            if (!header) {
+                chunk.parseLine(pos, lineEnd, dgs);
+            }
+            pos = lineEnd + 1;
+            line++;
+        }
+        return chunk;
+    }
+
+    /**
+     * Numbers the nodes, drops the self loops and duplicate edges, keeps the largest component and builds the graph.
+     */
+    private static CompactGraph link(Path file, List<Chunk> chunks) {
+        int records = chunks.stream().mapToInt(chunk -> chunk.records.size() / 2).sum();
+        NodeNumbering nodes = new NodeNumbering();
+        IntList sources = new IntList(records), targets = new IntList(records);
+        LongIntMap edgeKeys = new LongIntMap(records);
+        int loops = 0, duplicates = 0;
+
+        for (Chunk chunk : chunks) {
+            nodes.startChunk(chunk);
+            for (int r = 0; r < chunk.records.size(); r += 2) {
+                int from = nodes.node(chunk.records.get(r));
+                long id = chunk.records.get(r + 1);
+                if (id == NO_NODE) {
+                    continue;
+                }
+                int to = nodes.node(id);
+                if (from == to) {
+                    loops++;
+                    continue;
+                }
+                long key = ((long) Math.min(from, to) << 32) | Math.max(from, to);
+                if (edgeKeys.putIfAbsent(key, sources.size()) != LongIntMap.NO_VALUE) {
+                    duplicates++;
+                    continue;
+                }
+                sources.add(from);
+                targets.add(to);
+                nodes.union(from, to);
+            }
+        }
+        IntList parent = nodes.parent;
+        int nodeCount = parent.size();
+        if (loops + duplicates > 0) {
+            logger.log(Level.INFO, file.getFileName() + ": " + loops + " self loops and " + duplicates + " duplicate edges dropped.");
+        }
+        int ignored = chunks.stream().mapToInt(chunk -> chunk.ignoredRemovals).sum();
+        if (ignored > 0) {
+            logger.log(Level.WARNING, file.getFileName() + ": " + ignored + " node and edge removals ignored.");
+        }
+
+        //component sizes, by root
+        int[] componentSize = new int[nodeCount];
+        int largest = 0, components = 0;
+        for (int n = 0; n < nodeCount; n++) {
+            int root = find(parent, n);
+            if (componentSize[root]++ == 0) {
+                components++;
+            }
+            if (componentSize[root] > componentSize[largest]) {
+                largest = root;
+            }
+        }
+        if (components <= 1) {
+            return build(nodeCount, sources, targets);
+        }
+
+        //keep the largest component, renumbering the nodes and edges in their original order
+        int[] index = new int[nodeCount];
+        int kept = 0;
+        for (int n = 0; n < nodeCount; n++) {
+            index[n] = find(parent, n) == largest ? kept++ : -1;
+        }
+        IntList keptSources = new IntList(), keptTargets = new IntList();
+        for (int e = 0; e < sources.size(); e++) {
+            if (index[sources.get(e)] >= 0) {
+                keptSources.add(index[sources.get(e)]);
+                keptTargets.add(index[targets.get(e)]);
+            }
+        }
+        logger.log(Level.WARNING, file.getFileName() + " is not connected, " + components + " components. The largest one is kept: "
+                + kept + " of " + nodeCount + " nodes.");
+        return build(kept, keptSources, keptTargets);
+    }
+
+    private static CompactGraph build(int nodeCount, IntList sources, IntList targets) {
+        int edgeCount = sources.size();
+        int[] offsets = new int[nodeCount + 1];
+        for (int e = 0; e < edgeCount; e++) {
+            offsets[sources.get(e) + 1]++;
+            offsets[targets.get(e) + 1]++;
+        }
+        for (int n = 0; n < nodeCount; n++) {
+            offsets[n + 1] += offsets[n];
+        }
+        int[] fill = new int[nodeCount];
+        int[] neighbours = new int[offsets[nodeCount]];
+        int[] edges = new int[offsets[nodeCount]];
+        int[] endpoints = new int[2 * edgeCount];
+        for (int e = 0; e < edgeCount; e++) {
+            int source = sources.get(e), target = targets.get(e);
+            endpoints[2 * e] = source;
+            endpoints[2 * e + 1] = target;
+            int i = offsets[source] + fill[source]++;
+            edges[i] = e;
+            neighbours[i] = target;
+            i = offsets[target] + fill[target]++;
+            edges[i] = e;
+            neighbours[i] = source;
+        }
+        return new CompactGraph(offsets, neighbours, edges, endpoints, null, null);
+    }
+
+    private static int find(IntList parent, int node) {
+        while (parent.get(node) != node) {
+            parent.set(node, parent.get(parent.get(node)));
+            node = parent.get(node);
+        }
+        return node;
+    }
+
+    /**
+     * Numbers the nodes in the order of their first appearance, and tracks their components with union-find.
+     */
+    private static class NodeNumbering {
+        private final LongIntMap numbered = new LongIntMap();
+        private final HashMap<String, Integer> named = new HashMap<>();
+        private final IntList parent = new IntList();
+        private Chunk chunk;
+        private int[] chunkNamed;
+
+        private void startChunk(Chunk chunk) {
+            this.chunk = chunk;
+            chunkNamed = new int[chunk.names.size()];
+            Arrays.fill(chunkNamed, -1);
+        }
+
+        private int node(long id) {
+            if (id >= 0) {
+                int known = numbered.putIfAbsent(id, parent.size());
+                return known == LongIntMap.NO_VALUE ? add() : known;
+            }
+            int local = (int) (-id - 1);
+            if (chunkNamed[local] < 0) {
+                Integer known = named.putIfAbsent(chunk.names.get(local), parent.size());
+                chunkNamed[local] = known == null ? add() : known;
+            }
+            return chunkNamed[local];
+        }
+
+        private int add() {
+            int node = parent.size();
+            parent.add(node);
+            return node;
+        }
+
+        private void union(int a, int b) {
+            a = find(parent, a);
+            b = find(parent, b);
+            if (a != b) {
+                parent.set(Math.max(a, b), Math.min(a, b));
+            }
+        }
+    }
+
+    /**
+     * The parsed records of a chunk: pairs of node ids, an edge or a node (with NO_NODE as the pair).
+     */
+    private static class Chunk {
+        private final MappedByteBuffer buffer;
+        private final LongList records = new LongList();
+        //ids that are not numbers, numbered in the order of their first appearance in the chunk
+        private final ArrayList<String> names = new ArrayList<>();
+        private final HashMap<String, Integer> nameIndexes = new HashMap<>();
+        private int ignoredRemovals;
+        private String error;
+        //current token
+        private int pos, lineEnd, tokenStart, tokenEnd;
+
+        private Chunk(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        private void parseLine(int start, int end, boolean dgs) {
+            pos = start;
+            lineEnd = end;
+            if (!nextToken()) {
+                return;
+            }
+            byte first = buffer.get(tokenStart);
+            if (first == '#' || first == '%') {
+                return;
+            }
+            if (!dgs) {
+                long from = tokenId();
+                if (!nextToken()) {
+                    error = "not an edge: " + text(start, end);
+                    return;
+                }
+                records.add(from);
+                records.add(tokenId());
+                return;
+            }
+
+            String event = text(tokenStart, tokenEnd);
+            switch (event) {
+                case "an":
+                    if (nextToken()) {
+                        records.add(tokenId());
+                        records.add(NO_NODE);
+                    }
+                    break;
+                case "ae":
+                    //edge id, from, optional direction, to
+                    if (!nextToken() || !nextToken()) {
+                        error = "not an edge: " + text(start, end);
+                        return;
+                    }
+                    long from = tokenId();
+                    if (!nextToken()) {
+                        error = "not an edge: " + text(start, end);
+                        return;
+                    }
+                    if (tokenEnd - tokenStart == 1 && (buffer.get(tokenStart) == '>' || buffer.get(tokenStart) == '<')) {
+                        if (!nextToken()) {
+                            error = "not an edge: " + text(start, end);
+                            return;
+                        }
+                    }
+                    records.add(from);
+                    records.add(tokenId());
+                    break;
+                case "dn":
+                case "de":
+                    ignoredRemovals++;
+                    break;
+                default:
+                    //steps, attribute changes, graph clearing
+                    break;
+            }
+        }
+
+        /**
+         * Moves to the next token of the line. Quoted tokens are returned without the quotes.
+         * @return False at the end of the line.
+         */
+        private boolean nextToken() {
+            while (pos < lineEnd && isSeparator(buffer.get(pos))) {
+                pos++;
+            }
+            if (pos >= lineEnd) {
+                return false;
+            }
+            byte quote = buffer.get(pos);
+            if (quote == '"' || quote == '\'') {
+                tokenStart = ++pos;
+                while (pos < lineEnd && buffer.get(pos) != quote) {
+                    pos++;
+                }
+                tokenEnd = pos;
+                pos++;
+            } else {
+                tokenStart = pos;
+                while (pos < lineEnd && !isSeparator(buffer.get(pos))) {
+                    pos++;
+                }
+                tokenEnd = pos;
+            }
+            return true;
+        }
+
+        private static boolean isSeparator(byte b) {
+            return b == ' ' || b == '\t' || b == ',' || b == ';' || b == '\r';
+        }
+
+        /**
+         * Encodes the current token: plain numbers as they are, other ids as negative chunk local indexes.
+         */
+        private long tokenId() {
+            int length = tokenEnd - tokenStart;
+            boolean numeric = length > 0 && length <= MAX_NUMERIC_DIGITS && (length == 1 || buffer.get(tokenStart) != '0');
+            long value = 0;
+            for (int i = tokenStart; numeric && i < tokenEnd; i++) {
+                byte b = buffer.get(i);
+                numeric = b >= '0' && b <= '9';
+                value = value * 10 + (b - '0');
+            }
+            if (numeric) {
+                return value;
+            }
+            String name = text(tokenStart, tokenEnd);
+            Integer index = nameIndexes.get(name);
+            if (index == null) {
+                index = names.size();
+                names.add(name);
+                nameIndexes.put(name, index);
+            }
+            return -(index + 1L);
+        }
+
+        private String text(int start, int end) {
+            byte[] bytes = new byte[end - start];
+            buffer.get(start, bytes);
+            return new String(bytes, StandardCharsets.UTF_8).strip();
+        }
+    }
+}
@@ -1,11 +1,13 @@
 package main.java.explore.graph;
 
-import org.graphstream.algorithm.generator.Generator;
-import org.graphstream.algorithm.measure.ConnectivityMeasure;
+import main.java.explore.metrics.GraphGenerationEvent;
+import org.graphstream.algorithm.generator.BaseGenerator;
 import org.graphstream.graph.Graph;
 import org.graphstream.graph.Node;
 import org.graphstream.graph.implementations.SingleGraph;
 
+import java.util.Random;
+
 import static main.java.explore.algorithm.Algorithm.LABELID;
 
 public class GraphManager {
@@ -27,53 +29,95 @@ public class GraphManager {
         graph.addAttribute(GRAPH_DEGREE_LABEL, avgDegree);
     }
 
-    private static boolean isConnected(Graph graph) {
-        return ConnectivityMeasure.isKEdgeConnected(graph,1);
+    /**
+     * Generates a new connected graph with the given parameters, in one pass.
+     * If the generator leaves more than one component, they are joined by {@link CompactGraph.Builder#connect(Random)}.
+     * @param graphType Type of the graph.
+     * @param graphSize Number of nodes.
+     * @param avgDegree Average degree of the nodes (if applicable for the type).
+     * @param keepIds Set true if the graph is going to be rendered, so node and edge ids are needed.
+     * @return The compact graph.
+     */
+    public static CompactGraph regenerateGraph (GraphType graphType, int graphSize, int avgDegree, boolean keepIds) {
+        return regenerateGraph(graphType, graphSize, avgDegree, keepIds, new Random().nextLong());
+    }
+
+    /**
+     * Generates a new connected graph with the given parameters. The same parameters and seed give the same graph.
+     * @param graphType Type of the graph.
+     * @param graphSize Number of nodes.
+     * @param avgDegree Average degree of the nodes (if applicable for the type).
+     * @param keepIds Set true if the graph is going to be rendered, so node and edge ids are needed.
+     * @param seed Seed of the generator.
+     * @return The compact graph.
+     */
+    public static CompactGraph regenerateGraph (GraphType graphType, int graphSize, int avgDegree, boolean keepIds, long seed) {
+        GraphGenerationEvent event = new GraphGenerationEvent();
+        event.begin();
+        CompactGraph.Builder builder = new CompactGraph.Builder();
+        int joinedComponents = 0;
+        if (graphType == GraphType.TUTORIAL) {
+            createTutorialGraph(builder);
+        } else {
+            BaseGenerator gen = graphType.getGenerator(avgDegree);
+            gen.setRandomSeed(seed);
+            gen.addSink(builder);
+            gen.begin();
+            int i = 0;
+            while ((i < graphSize - 1) && gen.nextEvents()) {
+                i++;
+            }
+            gen.end();
+            //join the components instead of generating again until the graph is connected
+            joinedComponents = builder.connect(new Random(seed));
+        }
+        CompactGraph compactGraph = builder.build(keepIds);
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.graphType = graphType.name();
+            event.graphSize = graphSize;
+            event.avgDegree = avgDegree;
+            event.seed = seed;
+            event.nodes = compactGraph.getNodeCount();
+            event.edges = compactGraph.getEdgeCount();
+            event.joinedComponents = joinedComponents;
+            event.commit();
+        }
+        return compactGraph;
     }
 
-    public static void regenerateGraph (Graph graph) {
+    /**
+     * Fills a GraphStream graph with the nodes and edges of a compact graph, keeping their indexes.
+     * This is only needed when the graph is rendered.
+     * @param compactGraph The topology.
+     * @param graph The GraphStream graph to be (re)filled.
+     */
+    public static void materializeGraph (CompactGraph compactGraph, Graph graph) {
         GraphType graphType = graph.getAttribute(GRAPH_TYPE_LABEL);
         int graphSize = graph.getAttribute(GRAPH_SIZE_LABEL);
         int avgDegree = graph.getAttribute(GRAPH_DEGREE_LABEL);
 
+        graph.clear();
         graph.setStrict(true);
         graph.setAutoCreate(false);
-        Generator gen = graphType.getGenerator(avgDegree);
-        switch (graphType)
-        {
-            case TUTORIAL:
-                graph.clear();
-                createTutorialGraph(graph);
-                setGraphAttributes(graph, graphType, graphSize, avgDegree);
-                return;
-            case LOBSTER:
-            case RANDOM:
-            case COMPLETE:
-            default:
-                break;
+        for (int n = 0; n < compactGraph.getNodeCount(); n++) {
+            graph.addNode(compactGraph.getNodeId(n));
         }
-
-        gen.addSink(graph);
-
-        boolean connected = false;
-        while (!connected) {
-            graph.clear();
-            gen.begin();
-            int i = 0;
-            while ((i < graphSize - 1) && gen.nextEvents()) {
-                i++;
-            }
-            gen.end();
-            connected = isConnected(graph);
+        for (int e = 0; e < compactGraph.getEdgeCount(); e++) {
+            graph.addEdge(compactGraph.getEdgeId(e),
+                    compactGraph.getNodeId(compactGraph.getSource(e)),
+                    compactGraph.getNodeId(compactGraph.getTarget(e)), false);
         }
 
         setGraphAttributes(graph, graphType, graphSize, avgDegree);
     }
 
     public static void resetGraph (Graph graph, int[] startNodeIndexes) {
-        //set edges to unvisited and remove labels
+        //set edges to unvisited and remove labels (rendering only)
         graph.getEdgeSet().forEach(e -> {
             EdgeState.UNVISITED.setEdge(e);
+            e.setAttribute("ui.style", EdgeState.UNVISITED.style);
             e.removeAttribute(LABELID);
         });
         setStartNodeStyle(graph, startNodeIndexes);
@@ -103,15 +147,16 @@ public class GraphManager {
         }
     }
 
-    private static void createTutorialGraph(Graph graph) {
-        graph.setStrict(false);
-        graph.setAutoCreate( true );
-        graph.addEdge("AB", "A", "B" ,false);
-        graph.addEdge("BC", "B", "C" ,false);
-        graph.addEdge("CA", "C", "A" ,false);
-        graph.addEdge("CD", "C", "D" ,false);
-        graph.addEdge("DE", "D", "E" ,false);
-        graph.addEdge("DF", "D", "F" ,false);
+    private static void createTutorialGraph(CompactGraph.Builder builder) {
+        for (String nodeId : new String[]{"A", "B", "C", "D", "E", "F"}) {
+            builder.addNode(nodeId);
+        }
+        builder.addEdge("AB", "A", "B");
+        builder.addEdge("BC", "B", "C");
+        builder.addEdge("CA", "C", "A");
+        builder.addEdge("CD", "C", "D");
+        builder.addEdge("DE", "D", "E");
+        builder.addEdge("DF", "D", "F");
     }
 
     public static GraphType getGraphType (String graphTypeString) throws IllegalArgumentException {
@@ -15,8 +15,8 @@ public enum GraphType {
         this.code = code;
     }
 
-    Generator getGenerator(int avgDegree) {
-        Generator generator;
+    BaseGenerator getGenerator(int avgDegree) {
+        BaseGenerator generator;
         switch (this) {
             case LOBSTER:
                 generator = new LobsterGenerator();
@@ -0,0 +1,27 @@
+package main.java.explore.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event of an algorithm initialized on a graph (Algorithm.init), when a test case is reset.
+ */
+@Name("main.java.explore.AlgorithmInit")
+@Label("Algorithm Init")
+@Category({"Exploration", "Algorithm"})
+public class AlgorithmInitEvent extends Event {
+    @Label("Test Case")
+    public int testCase;
+    @Label("Algorithm")
+    public String algorithm;
+    @Label("Repeat")
+    public int repeat;
+    @Label("Nodes")
+    public int nodes;
+    @Label("Edges")
+    public int edges;
+    @Label("Agents")
+    public int agents;
+}
@@ -0,0 +1,109 @@
+package main.java.explore.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Timings and counters of an algorithm, summed over every test case running it. Each algorithm gets one instance,
+ * registered as MBeans under main.java.explore:type=Metrics,algorithm=&lt;name&gt;: the counters (name=counters)
+ * and a histogram for the ticks and for every phase of the sequential tick (name=tick, stopCheck, select, move, evaluate).
+ */
+public class AlgorithmMetrics implements AlgorithmMetricsMBean {
+    private static final String DOMAIN = "main.java.explore";
+    private static final long RATE_WINDOW_NANOS = 1_000_000_000L;
+    private static final ConcurrentHashMap<String, AlgorithmMetrics> metrics = new ConcurrentHashMap<>();
+    private static final Logger logger = Logger.getLogger(AlgorithmMetrics.class.getName());
+
+    public final LatencyHistogram tick = new LatencyHistogram();
+    public final LatencyHistogram stopCheck = new LatencyHistogram();
+    public final LatencyHistogram select = new LatencyHistogram();
+    public final LatencyHistogram move = new LatencyHistogram();
+    public final LatencyHistogram evaluate = new LatencyHistogram();
+
+    final LongAdder ticks = new LongAdder();
+    final LongAdder repeats = new LongAdder();
+    final AtomicLong runningAgents = new AtomicLong();
+    final LongAdder edgeTraversals = new LongAdder();
+    final LongAdder edgesVisited = new LongAdder();
+
+    private long rateTime = System.nanoTime(), rateTicks;
+    private double ticksPerSecond;
+
+    private AlgorithmMetrics() {
+    }
+
+    /**
+     * Returns the metrics of an algorithm, registering its MBeans on first use.
+     * @param algorithmName Name of the algorithm.
+     * @return The metrics.
+     */
+    public static AlgorithmMetrics of(String algorithmName) {
+        return metrics.computeIfAbsent(algorithmName, name -> {
+            AlgorithmMetrics result = new AlgorithmMetrics();
+            result.register(name);
+            return result;
+        });
+    }
+
+    private void register(String algorithmName) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        String prefix = DOMAIN + ":type=Metrics,algorithm=" + ObjectName.quote(algorithmName) + ",name=";
+        try {
+            server.registerMBean(this, new ObjectName(prefix + "counters"));
+            server.registerMBean(tick, new ObjectName(prefix + "tick"));
+            server.registerMBean(stopCheck, new ObjectName(prefix + "stopCheck"));
+            server.registerMBean(select, new ObjectName(prefix + "select"));
+            server.registerMBean(move, new ObjectName(prefix + "move"));
+            server.registerMBean(evaluate, new ObjectName(prefix + "evaluate"));
+        } catch (JMException e) {
+            logger.log(Level.WARNING, "Metrics of " + algorithmName + " could not be registered: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public long getTicks() {
+        return ticks.sum();
+    }
+
+    /**
+     * Ticks per second over the time since the previous call, updated at most once a second.
+     */
+    @Override
+    public synchronized double getTicksPerSecond() {
+        long now = System.nanoTime();
+        if (now - rateTime >= RATE_WINDOW_NANOS) {
+            long total = ticks.sum();
+            ticksPerSecond = (total - rateTicks) * 1e9 / (now - rateTime);
+            rateTicks = total;
+            rateTime = now;
+        }
+        return ticksPerSecond;
+    }
+
+    @Override
+    public long getRepeats() {
+        return repeats.sum();
+    }
+
+    @Override
+    public long getRunningAgents() {
+        return runningAgents.get();
+    }
+
+    @Override
+    public long getEdgeTraversals() {
+        return edgeTraversals.sum();
+    }
+
+    @Override
+    public long getEdgesVisited() {
+        return edgesVisited.sum();
+    }
+}
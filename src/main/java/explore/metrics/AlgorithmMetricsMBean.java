@@ -0,0 +1,18 @@
+package main.java.explore.metrics;
+
+/**
+ * JMX view of the counters of an algorithm, summed over its test cases.
+ */
+public interface AlgorithmMetricsMBean {
+    long getTicks();
+
+    double getTicksPerSecond();
+
+    long getRepeats();
+
+    long getRunningAgents();
+
+    long getEdgeTraversals();
+
+    long getEdgesVisited();
+}
@@ -0,0 +1,20 @@
+package main.java.explore.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event of a phase of a campaign run by the TestManager: reading the input, writing the headers,
+ * running the test cases and finishing the results.
+ */
+@Name("main.java.explore.CampaignPhase")
+@Label("Campaign Phase")
+@Category({"Exploration", "Campaign"})
+public class CampaignPhaseEvent extends Event {
+    @Label("Phase")
+    public String phase;
+    @Label("Test Cases")
+    public int testCases;
+}
@@ -0,0 +1,208 @@
+package main.java.explore.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Progress of a campaign: cases and repeats done, ticks, and the estimated completion time. The remaining time is
+ * projected from the wall clock time per finished repeat so far, which already accounts for the repeats running
+ * in parallel. Registered as the main.java.explore:type=Progress MBean while the campaign runs,
+ * and reported periodically to the log (and to stdout, if asked). The test cases add their ticks in batches.
+ * The tick rate is sampled by the progress itself once a second, so the reports and the JMX clients read the same
+ * rate and do not shorten each other's windows.
+ */
+public class CampaignProgress implements CampaignProgressMBean {
+    private static final long RATE_PERIOD_MILLIS = 1000;
+    private static final Logger logger = Logger.getLogger(CampaignProgress.class.getName());
+
+    private final int cases;
+    private final long repeats;
+    private final AtomicInteger casesDone = new AtomicInteger();
+    private final LongAdder repeatsDone = new LongAdder();
+    private final LongAdder repeatsCancelled = new LongAdder();
+    private final LongAdder ticks = new LongAdder();
+    private final long startTime = System.nanoTime();
+
+    //only touched by the sampling task
+    private long rateTime = startTime, rateTicks;
+    private volatile double ticksPerSecond;
+    private ObjectName objectName;
+    private ScheduledExecutorService reporter;
+
+    /**
+     * @param cases Number of test cases of the campaign.
+     * @param repeats Total number of repeats of the test cases.
+     */
+    public CampaignProgress(int cases, long repeats) {
+        this.cases = cases;
+        this.repeats = repeats;
+    }
+
+    /**
+     * Registers the MBean, starts sampling the tick rate and reporting.
+     * @param intervalSeconds Period of the reports, 0 for no reports.
+     * @param toStdout Set true to print the reports to stdout besides the log.
+     */
+    public void start(int intervalSeconds, boolean toStdout) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            objectName = new ObjectName("main.java.explore:type=Progress");
+            server.registerMBean(this, objectName);
+        } catch (JMException e) {
+            objectName = null;
+            logger.log(Level.WARNING, "Progress could not be registered: " + e.getMessage());
+        }
+        reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ProgressReporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(this::sampleRate, RATE_PERIOD_MILLIS, RATE_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+        if (intervalSeconds > 0) {
+            reporter.scheduleAtFixedRate(() -> report(toStdout), intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Stops reporting, logs the final state and unregisters the MBean.
+     */
+    public void stop() {
+        reporter.shutdownNow();
+        logger.log(Level.INFO, "Campaign finished: " + getStatus());
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (JMException e) {
+                logger.log(Level.WARNING, "Progress could not be unregistered: " + e.getMessage());
+            }
+        }
+    }
+
+    private void report(boolean toStdout) {
+        String status = getStatus();
+        logger.log(Level.INFO, "Progress: " + status);
+        if (toStdout) {
+            System.out.println(status);
+        }
+    }
+
+    /**
+     * Adds ticks of a running repeat, or the steps of a repeat that had no ticks (async mode).
+     */
+    public void ticks(long count) {
+        ticks.add(count);
+    }
+
+    /**
+     * @param completed False if the repeat was cancelled.
+     */
+    public void repeatDone(boolean completed) {
+        repeatsDone.increment();
+        if (!completed) {
+            repeatsCancelled.increment();
+        }
+    }
+
+    /**
+     * Records repeats skipped because their test case ran out of time, as cancelled.
+     */
+    public void repeatsSkipped(int count) {
+        repeatsDone.add(count);
+        repeatsCancelled.add(count);
+    }
+
+    public void caseDone() {
+        casesDone.incrementAndGet();
+    }
+
+    @Override
+    public int getCases() {
+        return cases;
+    }
+
+    @Override
+    public int getCasesDone() {
+        return casesDone.get();
+    }
+
+    @Override
+    public long getRepeats() {
+        return repeats;
+    }
+
+    @Override
+    public long getRepeatsDone() {
+        return repeatsDone.sum();
+    }
+
+    @Override
+    public long getRepeatsCancelled() {
+        return repeatsCancelled.sum();
+    }
+
+    @Override
+    public long getTicks() {
+        return ticks.sum();
+    }
+
+    private void sampleRate() {
+        long now = System.nanoTime();
+        long total = ticks.sum();
+        ticksPerSecond = (total - rateTicks) * 1e9 / (now - rateTime);
+        rateTicks = total;
+        rateTime = now;
+    }
+
+    /**
+     * Ticks per second over the last sampling period (a second).
+     */
+    @Override
+    public double getTicksPerSecond() {
+        return ticksPerSecond;
+    }
+
+    @Override
+    public long getElapsedSeconds() {
+        return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startTime);
+    }
+
+    /**
+     * @return Projected seconds until every repeat is done, -1 until the first repeat is.
+     */
+    @Override
+    public long getRemainingSeconds() {
+        long done = repeatsDone.sum();
+        if (done == 0) {
+            return -1;
+        }
+        double perRepeat = (double) (System.nanoTime() - startTime) / done;
+        return (long) (perRepeat * Math.max(0, repeats - done) / 1e9);
+    }
+
+    @Override
+    public String getEstimatedCompletion() {
+        long remaining = getRemainingSeconds();
+        return remaining < 0 ? "unknown" : LocalTime.now().plusSeconds(remaining).truncatedTo(ChronoUnit.SECONDS).toString();
+    }
+
+    @Override
+    public String getStatus() {
+        long remaining = getRemainingSeconds();
+        return "cases " + getCasesDone() + "/" + cases
+                + ", repeats " + getRepeatsDone() + "/" + repeats + " (" + getRepeatsCancelled() + " cancelled)"
+                + ", " + getTicks() + " ticks, " + Math.round(getTicksPerSecond()) + " ticks/s"
+                + ", elapsed " + getElapsedSeconds() + "s"
+                + (remaining < 0 ? "" : ", remaining " + remaining + "s, done at " + getEstimatedCompletion());
+    }
+}
@@ -0,0 +1,28 @@
+package main.java.explore.metrics;
+
+/**
+ * JMX view of the progress of a campaign.
+ */
+public interface CampaignProgressMBean {
+    int getCases();
+
+    int getCasesDone();
+
+    long getRepeats();
+
+    long getRepeatsDone();
+
+    long getRepeatsCancelled();
+
+    long getTicks();
+
+    double getTicksPerSecond();
+
+    long getElapsedSeconds();
+
+    long getRemainingSeconds();
+
+    String getEstimatedCompletion();
+
+    String getStatus();
+}
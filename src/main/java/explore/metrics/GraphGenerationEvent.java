@@ -0,0 +1,32 @@
+package main.java.explore.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event of a graph generated by GraphManager.regenerateGraph, connecting included.
+ */
+@Name("main.java.explore.GraphGeneration")
+@Label("Graph Generation")
+@Category({"Exploration", "Graph"})
+public class GraphGenerationEvent extends Event {
+    @Label("Graph Type")
+    public String graphType;
+    @Label("Graph Size")
+    public int graphSize;
+    @Label("Average Degree")
+    public int avgDegree;
+    @Label("Seed")
+    public long seed;
+    @Label("Nodes")
+    public int nodes;
+    @Label("Edges")
+    public int edges;
+    //the generator is not retried any more: the components are joined in one pass
+    @Label("Joined Components")
+    @Description("Components joined to make the graph connected, 0 if it was generated connected")
+    public int joinedComponents;
+}
@@ -0,0 +1,120 @@
+package main.java.explore.metrics;
+
+import main.java.explore.util.LogLinearBuckets;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of durations with a fixed relative precision (see {@link LogLinearBuckets}): values below 128 have
+ * their own buckets, every further power of two is split into 64 linear sub-buckets (under 1.6% error).
+ * Recording is lock-free, so the test cases running on the pool record into the same histogram. The runs themselves
+ * record into a {@link LocalHistogram} and add it here in bulk, so they do not contend on every value.
+ */
+public class LatencyHistogram implements LatencyHistogramMBean {
+    static final int SUB_BITS = 6;
+    private static final int BUCKETS = LogLinearBuckets.bucketCount(SUB_BITS);
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param nanos The duration, negative values count as 0.
+     */
+    public void record(long nanos) {
+        nanos = Math.max(0, nanos);
+        counts.incrementAndGet(LogLinearBuckets.bucket(nanos, SUB_BITS));
+        count.increment();
+        sum.add(nanos);
+        updateMax(nanos);
+    }
+
+    /**
+     * Adds the values of a local histogram.
+     * @param localCounts Counts of the buckets, from the first one.
+     * @param localCount Number of values.
+     * @param localSum Sum of the values.
+     * @param localMax Largest value.
+     */
+    void add(long[] localCounts, long localCount, long localSum, long localMax) {
+        for (int b = 0; b < localCounts.length; b++) {
+            if (localCounts[b] != 0) {
+                counts.addAndGet(b, localCounts[b]);
+            }
+        }
+        count.add(localCount);
+        sum.add(localSum);
+        updateMax(localMax);
+    }
+
+    /**
+     * Raises the maximum, without a write if the value is not larger.
+     */
+    private void updateMax(long value) {
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Returns the value below which the given ratio of the recorded values are, within the precision of the buckets.
+     * @param ratio Between 0 and 1.
+     * @return The percentile, 0 if nothing was recorded.
+     */
+    public long percentile(double ratio) {
+        long total = count.sum();
+        if (total == 0) {
+            return 0;
+        }
+        int bucket = LogLinearBuckets.quantileBucket(counts::get, BUCKETS, total, ratio);
+        return bucket < 0 ? max.get() : Math.min(LogLinearBuckets.lowest(bucket, SUB_BITS), max.get());
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public double getMean() {
+        long total = count.sum();
+        return total == 0 ? 0 : (double) sum.sum() / total;
+    }
+
+    @Override
+    public long getP50() {
+        return percentile(0.5);
+    }
+
+    @Override
+    public long getP90() {
+        return percentile(0.9);
+    }
+
+    @Override
+    public long getP99() {
+        return percentile(0.99);
+    }
+
+    @Override
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Clears the histogram. Values recorded meanwhile may be partly lost, it is meant for watching a campaign.
+     */
+    @Override
+    public void reset() {
+        for (int b = 0; b < BUCKETS; b++) {
+            counts.set(b, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+}
@@ -0,0 +1,20 @@
+package main.java.explore.metrics;
+
+/**
+ * JMX view of a {@link LatencyHistogram}, values in nanoseconds.
+ */
+public interface LatencyHistogramMBean {
+    long getCount();
+
+    double getMean();
+
+    long getP50();
+
+    long getP90();
+
+    long getP99();
+
+    long getMax();
+
+    void reset();
+}
@@ -0,0 +1,42 @@
+package main.java.explore.metrics;
+
+import main.java.explore.util.LogLinearBuckets;
+
+import java.util.Arrays;
+
+/**
+ * Thread-confined counterpart of {@link LatencyHistogram}, with the same buckets. A run records into it without
+ * atomics, and drains it into the shared histogram now and then (see RunMetrics).
+ */
+class LocalHistogram {
+    //grown up to the highest bucket used
+    private long[] counts = new long[0];
+    private long count, sum, max;
+
+    void record(long nanos) {
+        nanos = Math.max(0, nanos);
+        int bucket = LogLinearBuckets.bucket(nanos, LatencyHistogram.SUB_BITS);
+        if (bucket >= counts.length) {
+            counts = Arrays.copyOf(counts, bucket + 1);
+        }
+        counts[bucket]++;
+        count++;
+        sum += nanos;
+        max = Math.max(max, nanos);
+    }
+
+    /**
+     * Adds the recorded values to a shared histogram and clears this one.
+     * @param histogram The shared histogram.
+     */
+    void drainInto(LatencyHistogram histogram) {
+        if (count == 0) {
+            return;
+        }
+        histogram.add(counts, count, sum, max);
+        Arrays.fill(counts, 0);
+        count = 0;
+        sum = 0;
+        max = 0;
+    }
+}
@@ -0,0 +1,35 @@
+package main.java.explore.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event of a repeat of a test case, from fetching its graph until the agents stopped or it was cancelled.
+ */
+@Name("main.java.explore.Repeat")
+@Label("Test Case Repeat")
+@Category({"Exploration", "Algorithm"})
+public class RepeatEvent extends Event {
+    @Label("Test Case")
+    public int testCase;
+    @Label("Algorithm")
+    public String algorithm;
+    @Label("Graph Type")
+    public String graphType;
+    @Label("Graph Size")
+    public int graphSize;
+    @Label("Average Degree")
+    public int avgDegree;
+    @Label("Agents")
+    public int agents;
+    @Label("Repeat")
+    public int repeat;
+    @Label("Execution Mode")
+    public String executionMode;
+    @Label("Steps")
+    public int steps;
+    @Label("Completed")
+    public boolean completed;
+}
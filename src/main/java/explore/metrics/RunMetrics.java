@@ -0,0 +1,129 @@
+package main.java.explore.metrics;
+
+import main.java.explore.Agent;
+import main.java.explore.graph.EdgeState;
+import main.java.explore.graph.EdgeStore;
+
+import java.util.ArrayList;
+
+/**
+ * Feeds the metrics of an algorithm from a single run (one repeat at a time), not thread safe.
+ * The run records into its own histograms and counters, flushed into the shared metrics after every FLUSH_NANOS
+ * of tick time and at the end of the repeat, so the runs on the pool do not contend on every tick.
+ * A flush counts the moves of the agents, the running ones and the edges no longer unvisited,
+ * and keeps the running agent gauge of the algorithm up to date. The phases are only timed on every
+ * PHASE_SAMPLE_TICKS-th tick, since timing every call would cost more than some of the calls.
+ */
+public class RunMetrics {
+    private static final int PHASE_SAMPLE_TICKS = 16;
+    private static final long FLUSH_NANOS = 100_000_000L;
+
+    private final AlgorithmMetrics metrics;
+    private final LocalHistogram tick = new LocalHistogram();
+    private final LocalHistogram stopCheck = new LocalHistogram();
+    private final LocalHistogram select = new LocalHistogram();
+    private final LocalHistogram move = new LocalHistogram();
+    private final LocalHistogram evaluate = new LocalHistogram();
+    private ArrayList<Agent> agents;
+    private EdgeStore edges;
+    private int tickCount, unflushedTicks;
+    private long unflushedNanos;
+    //what the shared metrics already have of this repeat
+    private long reportedMoves;
+    private int reportedVisited, reportedRunning;
+
+    public RunMetrics(AlgorithmMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @param agents The agents of the repeat, before the first move.
+     * @param edges The edge states of the repeat, all unvisited.
+     */
+    public void startRepeat(ArrayList<Agent> agents, EdgeStore edges) {
+        this.agents = agents;
+        this.edges = edges;
+        tickCount = 0;
+        reportedMoves = 0;
+        reportedVisited = 0;
+        reportRunning(agents.size());
+    }
+
+    /**
+     * @return True if the phases of the next tick should be timed.
+     */
+    public boolean samplePhases() {
+        return tickCount % PHASE_SAMPLE_TICKS == 0;
+    }
+
+    /**
+     * Records the phase times of a sampled tick.
+     * @param moved False if every agent stopped in this tick, then there were no move and evaluate phases.
+     */
+    public void phases(long stopCheckNanos, long selectNanos, long moveNanos, long evaluateNanos, boolean moved) {
+        stopCheck.record(stopCheckNanos);
+        select.record(selectNanos);
+        if (moved) {
+            move.record(moveNanos);
+            evaluate.record(evaluateNanos);
+        }
+    }
+
+    /**
+     * Records a tick, after the agents moved.
+     * @param nanos Duration of the tick.
+     */
+    public void tick(long nanos) {
+        tickCount++;
+        unflushedTicks++;
+        tick.record(nanos);
+        unflushedNanos += nanos;
+        if (unflushedNanos >= FLUSH_NANOS) {
+            flush();
+        }
+    }
+
+    public void endRepeat(boolean completed) {
+        flush();
+        reportRunning(0);
+        if (completed) {
+            metrics.repeats.increment();
+        }
+    }
+
+    private void flush() {
+        tick.drainInto(metrics.tick);
+        stopCheck.drainInto(metrics.stopCheck);
+        select.drainInto(metrics.select);
+        move.drainInto(metrics.move);
+        evaluate.drainInto(metrics.evaluate);
+        if (unflushedTicks != 0) {
+            metrics.ticks.add(unflushedTicks);
+        }
+        unflushedTicks = 0;
+        unflushedNanos = 0;
+
+        long moves = 0;
+        int running = 0;
+        for (int i = 0; i < agents.size(); i++) {
+            Agent agent = agents.get(i);
+            moves += agent.getMoves();
+            if (agent.isRunning()) {
+                running++;
+            }
+        }
+        int visited = edges.size() - edges.count(EdgeState.UNVISITED);
+        metrics.edgeTraversals.add(moves - reportedMoves);
+        metrics.edgesVisited.add(visited - reportedVisited);
+        reportedMoves = moves;
+        reportedVisited = visited;
+        reportRunning(running);
+    }
+
+    private void reportRunning(int running) {
+        if (running != reportedRunning) {
+            metrics.runningAgents.addAndGet(running - reportedRunning);
+            reportedRunning = running;
+        }
+    }
+}
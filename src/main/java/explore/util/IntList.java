@@ -0,0 +1,93 @@
+package main.java.explore.util;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive integers. Used where boxed collections would otherwise hold node or edge indexes.
+ */
+public class IntList {
+    private static final int DEFAULT_CAPACITY = 8;
+
+    private int[] values;
+    private int size;
+
+    public IntList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public IntList(int capacity) {
+        values = new int[Math.max(capacity, 1)];
+    }
+
+    public void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    public int get(int index) {
+        assert index < size;
+        return values[index];
+    }
+
+    public void set(int index, int value) {
+        assert index < size;
+        values[index] = value;
+    }
+
+    public int getLast() {
+        return values[size - 1];
+    }
+
+    public int removeLast() {
+        return values[--size];
+    }
+
+    /**
+     * Removes the value at the given position by moving the last value into its place.
+     * @param index Position to remove.
+     * @return The removed value.
+     */
+    public int swapRemove(int index) {
+        assert index < size;
+        int removed = values[index];
+        values[index] = values[--size];
+        return removed;
+    }
+
+    public int indexOf(int value) {
+        for (int i = 0; i < size; i++) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(values[i]);
+        }
+        return sb.append("]").toString();
+    }
+}
@@ -0,0 +1,71 @@
+package main.java.explore.util;
+
+import java.util.function.IntToLongFunction;
+
+/**
+ * Log-linear buckets of non-negative values, in the manner of HdrHistogram: with a precision of subBits,
+ * values below 2^(subBits+1) have their own buckets, and every further power of two is split into 2^subBits linear
+ * sub-buckets, so the lowest value of a bucket is within 2^-subBits of the values in it.
+ * Shared by the histograms that keep their counts in different arrays.
+ */
+public final class LogLinearBuckets {
+
+    private LogLinearBuckets() {
+    }
+
+    /**
+     * @param subBits Precision.
+     * @return Number of buckets covering every non-negative long.
+     */
+    public static int bucketCount(int subBits) {
+        return (Long.SIZE - 1 - subBits) * (1 << subBits) + 2 * (1 << subBits);
+    }
+
+    /**
+     * @param value A non-negative value.
+     * @param subBits Precision.
+     * @return Index of the bucket of the value.
+     */
+    public static int bucket(long value, int subBits) {
+        int subBuckets = 1 << subBits;
+        if (value < 2 * subBuckets) {
+            return (int) value;
+        }
+        int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - subBits;
+        return shift * subBuckets + (int) (value >>> shift);
+    }
+
+    /**
+     * @param bucket Index of a bucket.
+     * @param subBits Precision.
+     * @return Lowest value of the bucket.
+     */
+    public static long lowest(int bucket, int subBits) {
+        int subBuckets = 1 << subBits;
+        if (bucket < 2 * subBuckets) {
+            return bucket;
+        }
+        int shift = bucket / subBuckets - 1;
+        return (long) (bucket - shift * subBuckets) << shift;
+    }
+
+    /**
+     * Finds the bucket holding the value below which the given ratio of the values are.
+     * @param counts Count of a bucket, by index.
+     * @param buckets Number of buckets to look at, from the first one.
+     * @param total Number of values, at least 1.
+     * @param ratio Between 0 and 1.
+     * @return Index of the bucket, -1 if the buckets hold fewer values than the rank (concurrent updates).
+     */
+    public static int quantileBucket(IntToLongFunction counts, int buckets, long total, double ratio) {
+        long rank = Math.max(1, (long) Math.ceil(ratio * total));
+        long seen = 0;
+        for (int b = 0; b < buckets; b++) {
+            seen += counts.applyAsLong(b);
+            if (seen >= rank) {
+                return b;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,92 @@
+package main.java.explore.util;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map from primitive longs to non-negative integers. Used to number millions of ids
+ * without boxing them.
+ */
+public class LongIntMap {
+    public static final int NO_VALUE = -1;
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private long[] keys;
+    private int[] values;
+    private int size, mask;
+
+    public LongIntMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public LongIntMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, DEFAULT_CAPACITY / 2) * 2 - 1) * 2;
+        allocate(capacity);
+    }
+
+    public int get(long key) {
+        int slot = slot(key);
+        while (values[slot] != NO_VALUE) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NO_VALUE;
+    }
+
+    /**
+     * Maps the key to the value, unless it is already mapped.
+     * @param key The key.
+     * @param value The value, not negative.
+     * @return The value the key was mapped to before, or NO_VALUE if the value was put.
+     */
+    public int putIfAbsent(long key, int value) {
+        assert value >= 0;
+        int slot = slot(key);
+        while (values[slot] != NO_VALUE) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        //keep at most half of the slots used
+        if (++size * 2 > keys.length) {
+            grow();
+        }
+        return NO_VALUE;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, NO_VALUE);
+        mask = capacity - 1;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(keys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != NO_VALUE) {
+                int slot = slot(oldKeys[i]);
+                while (values[slot] != NO_VALUE) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
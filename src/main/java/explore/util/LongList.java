@@ -0,0 +1,50 @@
+package main.java.explore.util;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive longs. Used for logs of packed records.
+ */
+public class LongList {
+    private static final int DEFAULT_CAPACITY = 8;
+
+    private long[] values;
+    private int size;
+
+    public LongList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public LongList(int capacity) {
+        values = new long[Math.max(capacity, 1)];
+    }
+
+    public void add(long value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    public long get(int index) {
+        assert index < size;
+        return values[index];
+    }
+
+    public void set(int index, long value) {
+        assert index < size;
+        values[index] = value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+}
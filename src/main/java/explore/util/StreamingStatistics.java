@@ -0,0 +1,107 @@
+package main.java.explore.util;
+
+import java.util.Arrays;
+
+/**
+ * Statistics of a stream of non-negative values in constant memory: count, min, max, mean and variance
+ * (Welford's online algorithm, in double precision) and quantiles from a log-linear histogram
+ * (see {@link LogLinearBuckets}). Values below 64 have their own buckets, every further power of two is split into
+ * 32 linear sub-buckets, so a quantile is within about 3% of the exact one. Two statistics can be merged, so parallel parts of a run are combined without
+ * keeping their values.
+ */
+public class StreamingStatistics {
+    private static final int SUB_BITS = 5;
+
+    private long count;
+    private double mean, m2;
+    private long min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+    //grown up to the highest bucket used, at most 1920 buckets
+    private int[] counts = new int[0];
+
+    /**
+     * @param value The value, negative values count as 0.
+     */
+    public void add(long value) {
+        value = Math.max(0, value);
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        int bucket = LogLinearBuckets.bucket(value, SUB_BITS);
+        if (bucket >= counts.length) {
+            counts = Arrays.copyOf(counts, bucket + 1);
+        }
+        counts[bucket]++;
+    }
+
+    /**
+     * Adds the values of another statistics to this one (Chan et al.'s pairwise combination).
+     * @param other The other statistics, unchanged.
+     */
+    public void merge(StreamingStatistics other) {
+        if (other.count == 0) {
+            return;
+        }
+        long total = count + other.count;
+        double delta = other.mean - mean;
+        m2 += other.m2 + delta * delta * count * other.count / total;
+        mean += delta * other.count / total;
+        count = total;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        if (other.counts.length > counts.length) {
+            counts = Arrays.copyOf(counts, other.counts.length);
+        }
+        for (int b = 0; b < other.counts.length; b++) {
+            counts[b] += other.counts[b];
+        }
+    }
+
+    /**
+     * Returns the value below which the given ratio of the values are, within the precision of the buckets.
+     * @param ratio Between 0 and 1.
+     * @return The quantile, 0 if there are no values.
+     */
+    public long quantile(double ratio) {
+        if (count == 0) {
+            return 0;
+        }
+        int bucket = LogLinearBuckets.quantileBucket(b -> counts[b], counts.length, count, ratio);
+        return bucket < 0 ? max : Math.max(min, Math.min(LogLinearBuckets.lowest(bucket, SUB_BITS), max));
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * @return The population variance, 0 if there are no values.
+     */
+    public double getVariance() {
+        return count == 0 ? 0 : m2 / count;
+    }
+
+    public double getDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    /**
+     * @return The smallest value, 0 if there are no values.
+     */
+    public long getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    /**
+     * @return The largest value, 0 if there are no values.
+     */
+    public long getMax() {
+        return count == 0 ? 0 : max;
+    }
+}